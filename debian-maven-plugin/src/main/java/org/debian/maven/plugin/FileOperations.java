@@ -0,0 +1,121 @@
+/*
+ * Copyright 2014 Debian Java Maintainers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.debian.maven.plugin;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Filesystem operations used to install the artifacts. The operations are
+ * performed in-process and are complete when the methods return.
+ */
+class FileOperations {
+
+    /** Install the files with a copy */
+    public static final String COPY = "copy";
+
+    /** Install the files with a hard link if possible, with a copy otherwise */
+    public static final String LINK = "link";
+
+    /**
+     * Installs a file with the specified strategy. The hard links are only created
+     * if the source and the destination are on the same filesystem, the file
+     * is copied otherwise. The destination is replaced if it already exists.
+     *
+     * @param strategy {@link #COPY} or {@link #LINK}
+     */
+    public static void install(File src, File dest, String strategy) throws IOException {
+        mkdir(dest.getAbsoluteFile().getParentFile());
+        Files.deleteIfExists(dest.toPath());
+        if (LINK.equals(strategy) && isSameFileStore(src, dest.getAbsoluteFile().getParentFile())) {
+            try {
+                Files.createLink(dest.toPath(), src.toPath());
+                return;
+            } catch (IOException e) {
+                System.err.println("Cannot link " + dest + " to " + src + ", copying it instead: " + e.getMessage());
+            } catch (UnsupportedOperationException e) {
+                // fall back to a copy
+            }
+        }
+        copyFile(src, dest);
+    }
+
+    private static boolean isSameFileStore(File file1, File file2) throws IOException {
+        return Files.getFileStore(file1.toPath()).equals(Files.getFileStore(file2.toPath()));
+    }
+
+    /**
+     * Copies a file with FileChannel.transferTo, which lets the kernel copy
+     * the data without going through a buffer in the JVM.
+     */
+    public static void copyFile(File src, File dest) throws IOException {
+        FileInputStream in = new FileInputStream(src);
+        try {
+            FileOutputStream out = new FileOutputStream(dest);
+            try {
+                FileChannel input = in.getChannel();
+                FileChannel output = out.getChannel();
+                long size = input.size();
+                long position = 0;
+                while (position < size) {
+                    position += input.transferTo(position, size - position, output);
+                }
+            } finally {
+                out.close();
+            }
+        } finally {
+            in.close();
+        }
+        dest.setLastModified(src.lastModified());
+    }
+
+    /**
+     * Creates a symbolic link, replacing the link if it already exists.
+     *
+     * @param target   the target of the link, usually a path relative to the directory of the link
+     * @param linkName the path of the link
+     */
+    public static void link(String target, String linkName) throws IOException {
+        Path link = Paths.get(linkName).toAbsolutePath();
+        mkdir(link.getParent().toFile());
+        if (Files.isSymbolicLink(link)) {
+            Files.delete(link);
+        } else if (Files.exists(link, LinkOption.NOFOLLOW_LINKS)) {
+            throw new IOException("cannot create the symbolic link " + link + ", the file already exists");
+        }
+        Files.createSymbolicLink(link, Paths.get(target.replace('/', File.separatorChar)));
+    }
+
+    /**
+     * Creates the directory and its parents if they don't exist.
+     */
+    public static void mkdir(File dir) throws IOException {
+        if (dir.isDirectory()) {
+            return;
+        }
+        if (!dir.mkdirs() && !dir.isDirectory()) {
+            throw new IOException("cannot create destination directory " + dir);
+        }
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2014 Debian Java Maintainers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.debian.maven.plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+import org.debian.maven.repo.DependencyRuleSetFiles;
+import org.debian.maven.repo.ListOfPOMs;
+
+/**
+ * Install the pom and jar files of all the modules of the reactor into the debian/ directory.
+ * This is equivalent to the install goal executed on each module, but the list of POMs
+ * and the rules are read only once. The POMs are cleaned first, then the files of all
+ * the modules are installed concurrently.
+ */
+@Mojo(name = "install-all", aggregator = true)
+public class InstallAllMojo extends AbstractMojo {
+
+    /**
+     * The projects of the reactor
+     */
+    @Parameter(defaultValue = "${reactorProjects}", required = true, readonly = true)
+    private List<MavenProject> reactorProjects;
+
+    /**
+     * Debian directory
+     */
+    @Parameter(property = "debian.dir")
+    private File debianDir;
+
+    /**
+     * Debian package (send from command line)
+     */
+    @Parameter(property = "debian.package")
+    private String debianPackage;
+
+    @Parameter(property = "maven.rules", defaultValue = "maven.rules", required = true)
+    private String mavenRules;
+
+    @Parameter(property = "maven.ignoreRules", defaultValue = "maven.ignoreRules", required = true)
+    private String mavenIgnoreRules;
+
+    @Parameter(property = "maven.publishedRules", defaultValue = "maven.publishedRules", required = true)
+    private String mavenPublishedRules;
+
+    /**
+     * Install the jars to /usr/share/java if true. Default is true
+     */
+    @Parameter(property = "install.to.usj", defaultValue = "true")
+    private boolean installToUsj = true;
+
+    /**
+     * Maven repository root
+     */
+    @Parameter(property = "maven.repo.local")
+    private File mavenRepoLocal;
+
+    /**
+     * If true, use local Maven repository for installation
+     */
+    @Parameter(property = "use.mavene.repo.local")
+    private boolean useMavenRepoLocal;
+
+    /**
+     * How the jars are installed: 'copy' (the default) or 'link'
+     */
+    @Parameter(property = "debian.install.strategy", defaultValue = FileOperations.COPY)
+    private String installStrategy;
+
+    /**
+     * Number of modules installed concurrently, defaults to the number of processors
+     */
+    @Parameter(property = "debian.install.threads", defaultValue = "0")
+    private int threads;
+
+    /**
+     * The list of POMs of the package, read once for all the modules
+     */
+    private ListOfPOMs listOfPOMs;
+
+    protected List<MavenProject> getReactorProjects() {
+        return reactorProjects;
+    }
+
+    protected File getDebianDir() {
+        return debianDir;
+    }
+
+    protected String getDebianPackage() {
+        return debianPackage;
+    }
+
+    protected ListOfPOMs getListOfPOMs() {
+        return listOfPOMs;
+    }
+
+    public void execute() throws MojoExecutionException {
+        List<InstallMojo> installs = new ArrayList<InstallMojo>();
+        for (MavenProject project : reactorProjects) {
+            installs.add(createInstallMojo(project));
+        }
+        if (installs.isEmpty()) {
+            return;
+        }
+
+        listOfPOMs = installs.get(0).readListOfPOMs();
+        DependencyRuleSetFiles rulesFiles = installs.get(0).readRulesFiles();
+
+        // The POMs are cleaned sequentially, this gives the destination of every file to install
+        try {
+            for (InstallMojo install : installs) {
+                install.setListOfPOMs(listOfPOMs);
+                install.setRulesFiles(rulesFiles);
+                install.cleanPom();
+            }
+        } catch (IOException e) {
+            getLog().error("execution failed", e);
+            throw new MojoExecutionException("Failed to execute " + getClass().getSimpleName(), e);
+        }
+
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(poolSize, installs.size()));
+        try {
+            List<Future<Void>> results = new ArrayList<Future<Void>>();
+            for (final InstallMojo install : installs) {
+                results.add(executor.submit(new Callable<Void>() {
+                    public Void call() throws IOException {
+                        install.installFiles();
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> result : results) {
+                result.get();
+            }
+        } catch (ExecutionException e) {
+            getLog().error("execution failed", e.getCause());
+            throw new MojoExecutionException("Failed to execute " + getClass().getSimpleName(), e.getCause());
+        } catch (InterruptedException e) {
+            throw new MojoExecutionException("Interrupted while installing the modules", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Creates the install goal of a module, configured as if it had been executed by Maven.
+     */
+    private InstallMojo createInstallMojo(MavenProject project) {
+        InstallMojo install = configure(new InstallMojo(), project, debianPackage);
+        install.setMavenRepoLocal(mavenRepoLocal);
+        install.setUseMavenRepoLocal(useMavenRepoLocal);
+        return install;
+    }
+
+    /**
+     * Configures an install goal for a module and a package.
+     */
+    protected <T extends SysInstallMojo> T configure(T install, MavenProject project, String debianPackage) {
+        install.setLog(getLog());
+        install.setGroupId(project.getGroupId());
+        install.setDestGroupId(project.getGroupId());
+        install.setArtifactId(project.getArtifactId());
+        install.setDestArtifactId(project.getArtifactId());
+        install.setVersion(project.getVersion());
+        install.setBasedir(project.getBasedir());
+        install.setRepoDir(project.getBasedir());
+        install.setJarDir(project.getBuild().getDirectory());
+        install.setFinalName(project.getBuild().getFinalName());
+        install.setDebianDir(debianDir);
+        install.setDebianPackage(debianPackage);
+        install.setDestPackage(debianPackage);
+        install.setMavenRules(mavenRules);
+        install.setMavenIgnoreRules(mavenIgnoreRules);
+        install.setMavenPublishedRules(mavenPublishedRules);
+        install.setInstallToUsj(installToUsj);
+        install.setInstallStrategy(installStrategy);
+        return install;
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2014 Debian Java Maintainers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.debian.maven.plugin;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Records the files installed by the install goals, with the size and the SHA-256
+ * of their content, and the target of the symbolic links. When the goal is executed
+ * again the files and the links that didn't change are not written again, and keep
+ * their modification time. The manifest is also used to remove exactly the files
+ * installed when the package is uninstalled.
+ */
+class InstallManifest {
+
+    private static final String FILE = "file:";
+    private static final String LINK = "link:";
+
+    private final File manifestFile;
+    private final Properties entries = new Properties();
+    private boolean modified;
+
+    /**
+     * Loads the manifest, or creates an empty manifest if the file doesn't exist.
+     */
+    public InstallManifest(File manifestFile) {
+        this.manifestFile = manifestFile;
+        if (manifestFile.exists()) {
+            try {
+                InputStream in = new FileInputStream(manifestFile);
+                try {
+                    entries.load(in);
+                } finally {
+                    in.close();
+                }
+            } catch (IOException e) {
+                System.err.println("Cannot read the install manifest " + manifestFile + ": " + e.getMessage());
+                entries.clear();
+            }
+        }
+    }
+
+    /**
+     * Installs a file unless the same content was already installed at the same place.
+     *
+     * @param strategy {@link FileOperations#COPY} or {@link FileOperations#LINK}
+     */
+    public void install(File src, File dest, String strategy) throws IOException {
+        String key = dest.getAbsolutePath();
+        String entry = FILE + src.length() + ":" + sha256(src);
+        if (entry.equals(entries.getProperty(key)) && dest.isFile() && dest.length() == src.length()) {
+            return;
+        }
+        FileOperations.install(src, dest, strategy);
+        put(key, entry);
+    }
+
+    /**
+     * Creates a symbolic link unless the same link already exists.
+     */
+    public void link(String target, String linkName) throws IOException {
+        Path link = Paths.get(linkName).toAbsolutePath();
+        if (!Files.isSymbolicLink(link) || !Files.readSymbolicLink(link).toString().equals(target)) {
+            FileOperations.link(target, linkName);
+        }
+        put(link.toString(), LINK + target);
+    }
+
+    /**
+     * Removes the files and the links recorded in the manifest whose path starts
+     * with the specified prefix, and the directories left empty by their removal.
+     *
+     * @return the number of entries removed from the manifest
+     */
+    public int uninstall(String prefix) throws IOException {
+        List<String> paths = new ArrayList<String>();
+        for (String path : entries.stringPropertyNames()) {
+            if (path.startsWith(prefix)) {
+                paths.add(path);
+            }
+        }
+
+        Set<File> dirs = new LinkedHashSet<File>();
+        for (String path : paths) {
+            Files.deleteIfExists(Paths.get(path));
+            entries.remove(path);
+            dirs.add(new File(path).getParentFile());
+            modified = true;
+        }
+        for (File dir : dirs) {
+            // only succeeds if the directory is empty
+            dir.delete();
+        }
+        return paths.size();
+    }
+
+    private void put(String key, String entry) {
+        if (!entry.equals(entries.getProperty(key))) {
+            entries.setProperty(key, entry);
+            modified = true;
+        }
+    }
+
+    /**
+     * Writes the manifest if files were installed.
+     */
+    public void save() throws IOException {
+        if (!modified) {
+            return;
+        }
+        FileOperations.mkdir(manifestFile.getAbsoluteFile().getParentFile());
+        OutputStream out = new FileOutputStream(manifestFile);
+        try {
+            entries.store(out, "Files installed by debian-maven-plugin");
+        } finally {
+            out.close();
+        }
+        modified = false;
+    }
+
+    static String sha256(File file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+        InputStream in = new FileInputStream(file);
+        try {
+            byte[] buffer = new byte[65536];
+            int count;
+            while ((count = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, count);
+            }
+        } finally {
+            in.close();
+        }
+        StringBuilder sb = new StringBuilder();
+        for (byte b : digest.digest()) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+            sb.append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2014 Debian Java Maintainers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.debian.maven.plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+import org.debian.maven.packager.DependenciesMojo;
+
+/**
+ * Install the package in a single Maven session: the pom and jar files of all the modules
+ * are installed as with the install-all goal, the dependencies of the package are resolved
+ * as with mh_resolve_dependencies, and the javadoc jars are installed into the documentation
+ * package as with the install-doc goal. The list of POMs is read only once for all the steps.
+ */
+@Mojo(name = "install-package", aggregator = true)
+public class InstallPackageMojo extends InstallAllMojo {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * The project where Maven was started
+     */
+    @Parameter(defaultValue = "${project}", required = true, readonly = true)
+    private MavenProject project;
+
+    /**
+     * Package receiving the javadoc jars, the documentation isn't installed if not set
+     */
+    @Parameter(property = "debian.doc.package")
+    private String docPackage;
+
+    /**
+     * Repository used to resolve the dependencies of the package
+     */
+    @Parameter(property = "debian.resolve.repo", defaultValue = "/usr/share/maven-repo")
+    private File resolveRepo;
+
+    public void execute() throws MojoExecutionException {
+        super.execute();
+        resolveDependencies();
+        if (docPackage != null && docPackage.length() > 0) {
+            installDoc();
+        }
+    }
+
+    /**
+     * Resolves the dependencies and writes the substvars of the package
+     */
+    private void resolveDependencies() throws MojoExecutionException {
+        DependenciesMojo dependencies = new DependenciesMojo();
+        dependencies.setLog(getLog());
+        dependencies.setProject(project);
+        @SuppressWarnings("unchecked")
+        List<MavenProject> collectedProjects = project.getCollectedProjects();
+        dependencies.setCollectedProjects(collectedProjects);
+        dependencies.setOutputDirectory(getDebianDir());
+        dependencies.setPackageName(getDebianPackage());
+        dependencies.setPackageType("maven");
+        dependencies.setResolveJavadoc(docPackage != null && docPackage.length() > 0);
+        dependencies.setListOfPoms(new File(getDebianDir(), getDebianPackage() + ".poms"));
+        dependencies.setParsedListOfPoms(getListOfPOMs());
+        dependencies.setMavenRepo(resolveRepo);
+        dependencies.setInteractive(false);
+        dependencies.setOffline(true);
+        dependencies.execute();
+
+        if (!dependencies.getIssues().isEmpty()) {
+            throw new MojoExecutionException("Some problems were found in this project");
+        }
+
+        try {
+            fixSubstvars(new File(getDebianDir(), getDebianPackage() + ".substvars"));
+        } catch (IOException e) {
+            getLog().error("execution failed", e);
+            throw new MojoExecutionException("Failed to execute " + getClass().getSimpleName(), e);
+        }
+    }
+
+    /**
+     * Replaces the 'maven.' prefix of the variables with 'maven:' as expected by dpkg-gencontrol
+     */
+    private void fixSubstvars(File substvars) throws IOException {
+        if (!substvars.exists()) {
+            return;
+        }
+        List<String> lines = new ArrayList<String>();
+        for (String line : Files.readAllLines(substvars.toPath(), UTF8)) {
+            lines.add(line.replaceFirst("maven\\.", "maven:"));
+        }
+        Files.write(substvars.toPath(), lines, UTF8);
+    }
+
+    /**
+     * Installs the javadoc jars of the modules into the documentation package
+     */
+    private void installDoc() throws MojoExecutionException {
+        for (MavenProject module : getReactorProjects()) {
+            InstallDocMojo installDoc = configure(new InstallDocMojo(), module, docPackage);
+            installDoc.execute();
+        }
+    }
+}
@@ -42,6 +42,7 @@ public class SysInstallDocMojo extends SysInstallMojo {
     @Override
     protected void runMojo() throws IOException {
         copyJar();
+        saveInstallManifest();
     }
 
 }
@@ -19,8 +19,7 @@ package org.debian.maven.plugin;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
+import java.io.Reader;
 import java.util.Properties;
 import java.util.regex.Pattern;
 
@@ -28,7 +27,9 @@ import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
-import org.codehaus.plexus.util.FileUtils;
+import org.debian.maven.repo.DependencyRuleSet;
+import org.debian.maven.repo.DependencyRuleSetFiles;
+import org.debian.maven.repo.DependencyRuleSetFiles.RulesType;
 import org.debian.maven.repo.ListOfPOMs;
 import org.debian.maven.repo.POMCleaner;
 import org.debian.maven.repo.POMOptions;
@@ -143,6 +144,13 @@ public class SysInstallMojo extends AbstractMojo {
     @Parameter(property = "install.to.usj", defaultValue = "true")
     private boolean installToUsj = true;
 
+    /**
+     * How the jars are installed: 'copy' (the default) or 'link' to create hard links
+     * to the jars of the build directory when they are on the same filesystem.
+     */
+    @Parameter(property = "debian.install.strategy", defaultValue = FileOperations.COPY)
+    private String installStrategy = FileOperations.COPY;
+
     /**
      * Basename of the JAR inside /usr/share/java
      */
@@ -160,6 +168,20 @@ public class SysInstallMojo extends AbstractMojo {
 
     private String classifier;
 
+    /**
+     * The list of POMs of the package, shared by the modules of the reactor when set
+     */
+    private ListOfPOMs listOfPOMs;
+
+    /**
+     * The rules used to clean the POMs, shared by the modules of the reactor when set
+     */
+    private DependencyRuleSetFiles rulesFiles;
+
+    /**
+     * The files installed by the previous executions of the goal
+     */
+    private InstallManifest installManifest;
 
     // ----------------------------------------------------------------------
     // Public methods
@@ -314,6 +336,14 @@ public class SysInstallMojo extends AbstractMojo {
         this.installToUsj = installToUsj;
     }
 
+    public String getInstallStrategy() {
+        return installStrategy;
+    }
+
+    public void setInstallStrategy(String installStrategy) {
+        this.installStrategy = installStrategy;
+    }
+
     public String getUsjName() {
         return usjName;
     }
@@ -342,6 +372,22 @@ public class SysInstallMojo extends AbstractMojo {
         this.version = version;
     }
 
+    public ListOfPOMs getListOfPOMs() {
+        return listOfPOMs;
+    }
+
+    public void setListOfPOMs(ListOfPOMs listOfPOMs) {
+        this.listOfPOMs = listOfPOMs;
+    }
+
+    public DependencyRuleSetFiles getRulesFiles() {
+        return rulesFiles;
+    }
+
+    public void setRulesFiles(DependencyRuleSetFiles rulesFiles) {
+        this.rulesFiles = rulesFiles;
+    }
+
     // ----------------------------------------------------------------------
     // Private methods
     // ----------------------------------------------------------------------
@@ -531,33 +577,33 @@ public class SysInstallMojo extends AbstractMojo {
     }
 
     /**
-     * command for creating the relative symlink
+     * Returns the manifest of the files installed for the package given on the command line,
+     * e.g. target/libfoo-java.install-manifest
      */
-    private void link(String target, String linkName) throws IOException {
-        if (System.getProperty("os.name").contains("Windows")) {
-            File linkNameFile = new File(linkName).getAbsoluteFile();
-            linkNameFile.getParentFile().mkdirs();
-            Process process = new ProcessBuilder().command("cmd", "/C", "mklink", linkNameFile.getAbsolutePath(), target.replace('/', '\\')).start();
-            try {
-                process.waitFor();
-            } catch (InterruptedException e) {
-                throw new IOException(e);
-            }
-        } else {
-            Runtime.getRuntime().exec(new String[]{"ln", "-s", target, linkName}, null);
+    protected InstallManifest getInstallManifest() {
+        if (installManifest == null) {
+            installManifest = new InstallManifest(new File(basedir, "target/" + debianPackage + ".install-manifest"));
         }
+        return installManifest;
     }
 
-    private void mkdir(String path) throws IOException {
-        File destinationDirectory = new File(path);
-        if (destinationDirectory.isDirectory()) {
-            return;
-        }
-        if (!destinationDirectory.mkdirs()) {
-            throw new IOException("cannot create destination directory " + path);
+    protected void saveInstallManifest() throws IOException {
+        if (installManifest != null) {
+            installManifest.save();
         }
     }
 
+    /**
+     * create the relative symlink
+     */
+    private void link(String target, String linkName) throws IOException {
+        getInstallManifest().link(target, linkName);
+    }
+
+    private void mkdir(String path) throws IOException {
+        FileOperations.mkdir(new File(path));
+    }
+
     /**
      * if a jar exists: copy it to the Maven repository
      */
@@ -565,7 +611,7 @@ public class SysInstallMojo extends AbstractMojo {
         File jarFile = new File(fullJarName());
         if (jarFile.exists()) {
             System.out.println("Install jar file into Maven repo: " + jarFile.getAbsolutePath());
-            FileUtils.copyFile(jarFile, new File(jarDestPath()));
+            getInstallManifest().install(jarFile, new File(jarDestPath()), installStrategy);
             if (debianVersion != null && !debianVersion.equals(version)) {
                 mkdir(debianFullRepoPath());
                 link(jarDestRelPath(), debianJarDestPath());
@@ -581,13 +627,8 @@ public class SysInstallMojo extends AbstractMojo {
         if (jarFile.exists()) {
             System.out.println("Install jar for " + artifactId + " into /usr/share/java");
             mkdir(compatSharePath());
-            FileUtils.copyFile(jarFile, new File(fullCompatPath()));
-            if (noUsjVersionless) {
-                link(destUsjJarName(), versionedFullCompatPath());
-            } else {
-                link(destUsjJarName(), fullCompatPath());
-                link(destUsjJarName(), versionedFullCompatPath());
-            }
+            getInstallManifest().install(jarFile, new File(fullCompatPath()), installStrategy);
+            link(destUsjJarName(), versionedFullCompatPath());
         }
     }
 
@@ -614,12 +655,43 @@ public class SysInstallMojo extends AbstractMojo {
         }
     }
 
+    /**
+     * Reads the list of POMs of the package, debian/&lt;package&gt;.poms
+     */
+    protected ListOfPOMs readListOfPOMs() {
+        return new ListOfPOMs(new File(debianDir, debianPackage + ".poms"));
+    }
+
+    /**
+     * Reads the rules used to clean the POMs
+     */
+    protected DependencyRuleSetFiles readRulesFiles() {
+        DependencyRuleSetFiles rulesFiles = new DependencyRuleSetFiles();
+        rulesFiles.get(RulesType.RULES).addAll(DependencyRuleSet.readRules(getMavenRulesFile(), "", false, false));
+        rulesFiles.get(RulesType.IGNORE).addAll(DependencyRuleSet.readRules(getMavenIgnoreRulesFile(), "", false, false));
+        rulesFiles.get(RulesType.PUBLISHED).addAll(DependencyRuleSet.readRules(getMavenPublishedRulesFile(), "", false, false));
+        return rulesFiles;
+    }
+
+    private File getMavenRulesFile() {
+        return new File(debianDir, mavenRules).getAbsoluteFile();
+    }
+
+    private File getMavenIgnoreRulesFile() {
+        return new File(debianDir, mavenIgnoreRules).getAbsoluteFile();
+    }
+
+    private File getMavenPublishedRulesFile() {
+        return new File(debianDir, mavenPublishedRules).getAbsoluteFile();
+    }
+
     /**
      * clean the pom.xml
      */
-    private void cleanPom() {
-        File pomOptionsFile = new File(debianDir, debianPackage + ".poms");
-        ListOfPOMs listOfPOMs = new ListOfPOMs(pomOptionsFile);
+    protected void cleanPom() throws IOException {
+        if (listOfPOMs == null) {
+            listOfPOMs = readListOfPOMs();
+        }
 
         // Use the saved pom before cleaning as it was untouched by the transform operation
         String pomPath = pomSrcPath() + ".save";
@@ -678,69 +750,69 @@ public class SysInstallMojo extends AbstractMojo {
                            (packageIsJavaLib && installToUsj);
         }
 
-        List<String> params = new ArrayList<String>();
-        params.add("--keep-pom-version");
-
-        params.add("--package=" + destPackage);
-        String mavenRulesPath = new File(debianDir, mavenRules).getAbsolutePath();
-        params.add("--rules=" + mavenRulesPath);
-        String mavenIgnoreRulesPath = new File(debianDir, mavenIgnoreRules).getAbsolutePath();
-        params.add("--ignore-rules=" + mavenIgnoreRulesPath);
-        String mavenPublishedRulesPath = new File(debianDir, mavenPublishedRules).getAbsolutePath();
-        params.add("--published-rules=" + mavenPublishedRulesPath);
-
         System.out.println("Cleaning pom file: " + pomFile + " with options:");
         System.out.println("\t--keep-pom-version --package=" + destPackage);
-        System.out.println("\t--rules=" + mavenRulesPath);
-        System.out.println("\t--ignore-rules=" + mavenIgnoreRulesPath);
-        System.out.println("\t--published-rules=" + mavenPublishedRulesPath);
+        System.out.println("\t--rules=" + getMavenRulesFile());
+        System.out.println("\t--ignore-rules=" + getMavenIgnoreRulesFile());
+        System.out.println("\t--published-rules=" + getMavenPublishedRulesFile());
+
+        // The rules are parsed once, and shared by the modules of the reactor with install-all
+        if (rulesFiles == null) {
+            rulesFiles = readRulesFiles();
+        }
+
+        POMCleaner cleaner = new POMCleaner();
+        cleaner.setRulesFiles(rulesFiles);
+        cleaner.addDefaultRules();
 
-        // add optional --no-parent option
-        if (pomOption != null && pomOption.isNoParent()) {
-            params.add("--no-parent");
+        boolean noParent = pomOption != null && pomOption.isNoParent();
+        if (noParent) {
             System.out.println("\t--no-parent");
         }
 
-        // add options --keep-elements option
         if (pomOption != null && pomOption.getKeepElements() != null) {
-            params.add("--keep-elements=" + pomOption.getKeepElements());
             System.out.println("\t--keep-elements=" + pomOption.getKeepElements());
+            for (String element : pomOption.getKeepElements().split(",")) {
+                cleaner.addElementToKeep(element.trim());
+            }
         }
 
-        params.add(pomFile.getAbsolutePath());
-        params.add(cleanedPomSrcPath());
-        params.add(cleanedPomPropertiesSrcPath());
-
-        POMCleaner.main(params.toArray(new String[params.size()]));
-
-        Properties pomProperties = new Properties();
-        try {
-            pomProperties.load(new FileReader(cleanedPomPropertiesSrcPath()));
-        } catch (IOException ex) {
-            ex.printStackTrace();
-        }
+        Properties pomProperties = cleanPom(cleaner, pomFile, cleanedPomSrcPath(), cleanedPomPropertiesSrcPath(), noParent);
         destGroupId = pomProperties.getProperty("groupId");
         destArtifactId = pomProperties.getProperty("artifactId");
         debianVersion = pomProperties.getProperty("debianVersion");
 
         if (debianVersion != null && !debianVersion.equals(version)) {
-            params.remove(0);
-            params.remove(params.size() - 1);
-            params.remove(params.size() - 1);
-            params.add(debianPomSrcPath());
-            params.add(debianPomPropertiesSrcPath());
+            cleanPom(cleaner, pomFile, debianPomSrcPath(), debianPomPropertiesSrcPath(), noParent);
+        }
+    }
 
-            POMCleaner.main(params.toArray(new String[params.size()]));
+    /**
+     * Cleans the POM with the rules already loaded in the cleaner.
+     *
+     * @return the properties of the cleaned POM (groupId, artifactId, debianVersion...)
+     */
+    private Properties cleanPom(POMCleaner cleaner, File pomFile, String targetPomPath, String pomPropertiesPath, boolean noParent) throws IOException {
+        File pomPropertiesFile = new File(pomPropertiesPath);
+        cleaner.cleanPom(pomFile, new File(targetPomPath), pomPropertiesFile, noParent, false, true, false, null, destPackage);
+
+        Properties pomProperties = new Properties();
+        Reader reader = new FileReader(pomPropertiesFile);
+        try {
+            pomProperties.load(reader);
+        } finally {
+            reader.close();
         }
+        return pomProperties;
     }
 
     /**
      * copy the pom.xml
      */
     protected void copyPom() throws IOException {
-        FileUtils.copyFile(new File(cleanedPomSrcPath()), new File(pomDestPath()));
+        getInstallManifest().install(new File(cleanedPomSrcPath()), new File(pomDestPath()), FileOperations.COPY);
         if (debianVersion != null && !debianVersion.equals(version)) {
-            FileUtils.copyFile(new File(debianPomSrcPath()), new File(debianPomDestPath()));
+            getInstallManifest().install(new File(debianPomSrcPath()), new File(debianPomDestPath()), FileOperations.COPY);
         }
     }
 
@@ -760,6 +832,13 @@ public class SysInstallMojo extends AbstractMojo {
      */
     protected void runMojo() throws IOException {
         cleanPom();
+        installFiles();
+    }
+
+    /**
+     * install the files of the artifact once its pom has been cleaned
+     */
+    protected void installFiles() throws IOException {
         prepareDestDirs();
         copyPom();
         if (installToUsj) {
@@ -768,5 +847,6 @@ public class SysInstallMojo extends AbstractMojo {
         } else {
             copyJar();
         }
+        saveInstallManifest();
     }
 }
@@ -38,9 +38,19 @@ public class SysUninstallMojo extends SysInstallMojo {
     // Private methods
     // ----------------------------------------------------------------------
 
+    /**
+     * Remove the files recorded in the install manifest, or guess the files
+     * to remove if they were installed by a version of the plugin without manifest.
+     */
     @Override
     protected void runMojo() throws IOException {
-        FileUtils.forceDelete(fullRepoPath());
-        FileUtils.fileDelete(fullCompatPath());
+        int count = getInstallManifest().uninstall(packagePath() + "/usr/share/");
+        if (count > 0) {
+            System.out.println("Removed " + count + " files installed for " + getDebianPackage());
+            saveInstallManifest();
+        } else {
+            FileUtils.forceDelete(fullRepoPath());
+            FileUtils.fileDelete(fullCompatPath());
+        }
     }
 }
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2014 Debian Java Maintainers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.debian.maven.plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FileOperationsTest {
+
+    private File testDir = new File("target/tmp/file-operations");
+
+    @After
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(testDir);
+    }
+
+    @Test
+    public void testLink() throws Exception {
+        File jar = new File(testDir, "usr/share/java/foo.jar");
+        FileUtils.writeStringToFile(jar, "foo");
+        File link = new File(testDir, "usr/share/maven-repo/org/foo/foo/1.0/foo-1.0.jar");
+
+        FileOperations.link("../../../../../java/foo.jar", link.getPath());
+
+        assertTrue(Files.isSymbolicLink(link.toPath()));
+        assertEquals("../../../../../java/foo.jar", Files.readSymbolicLink(link.toPath()).toString());
+        assertEquals("foo", FileUtils.readFileToString(link));
+
+        // an existing link is replaced
+        FileOperations.link("../../../../../java/bar.jar", link.getPath());
+        assertEquals("../../../../../java/bar.jar", Files.readSymbolicLink(link.toPath()).toString());
+    }
+
+    @Test
+    public void testInstallWithCopy() throws Exception {
+        File jar = new File(testDir, "target/foo.jar");
+        FileUtils.writeStringToFile(jar, "foo");
+        File dest = new File(testDir, "debian/libfoo-java/usr/share/java/foo.jar");
+
+        FileOperations.install(jar, dest, FileOperations.COPY);
+
+        assertEquals("foo", FileUtils.readFileToString(dest));
+        assertFalse(Files.isSameFile(jar.toPath(), dest.toPath()));
+    }
+
+    @Test
+    public void testInstallWithLink() throws Exception {
+        File jar = new File(testDir, "target/foo.jar");
+        FileUtils.writeStringToFile(jar, "foo");
+        File dest = new File(testDir, "debian/libfoo-java/usr/share/java/foo.jar");
+        FileUtils.writeStringToFile(dest, "previous");
+
+        FileOperations.install(jar, dest, FileOperations.LINK);
+
+        assertEquals("foo", FileUtils.readFileToString(dest));
+        assertTrue(Files.isSameFile(jar.toPath(), dest.toPath()));
+
+        // the installation of another file doesn't modify the file linked previously
+        File jar2 = new File(testDir, "foo-2.jar");
+        FileUtils.writeStringToFile(jar2, "foo2");
+        FileOperations.install(jar2, dest, FileOperations.COPY);
+        assertEquals("foo", FileUtils.readFileToString(jar));
+        assertEquals("foo2", FileUtils.readFileToString(dest));
+    }
+
+    @Test(expected = IOException.class)
+    public void testLinkOverFile() throws Exception {
+        File jar = new File(testDir, "usr/share/java/foo.jar");
+        FileUtils.writeStringToFile(jar, "foo");
+
+        FileOperations.link("foo-1.0.jar", jar.getPath());
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2014 Debian Java Maintainers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.debian.maven.plugin;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class InstallManifestTest {
+
+    private File testDir = new File("target/tmp/install-manifest");
+    private File manifestFile = new File(testDir, "target/libfoo-java.install-manifest");
+
+    @After
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(testDir);
+    }
+
+    @Test
+    public void testSkipUnchangedFiles() throws Exception {
+        File jar = new File(testDir, "target/foo.jar");
+        FileUtils.writeStringToFile(jar, "foo");
+        File dest = new File(testDir, "debian/libfoo-java/usr/share/java/foo.jar");
+        File link = new File(testDir, "debian/libfoo-java/usr/share/java/foo-1.0.jar");
+
+        InstallManifest manifest = new InstallManifest(manifestFile);
+        manifest.install(jar, dest, FileOperations.COPY);
+        manifest.link("foo.jar", link.getPath());
+        manifest.save();
+        assertTrue(manifestFile.exists());
+
+        dest.setLastModified(1000000000000L);
+
+        // unchanged jar: the installed file isn't touched
+        manifest = new InstallManifest(manifestFile);
+        manifest.install(jar, dest, FileOperations.COPY);
+        manifest.link("foo.jar", link.getPath());
+        assertEquals(1000000000000L, dest.lastModified());
+        assertEquals("foo.jar", Files.readSymbolicLink(link.toPath()).toString());
+
+        // modified jar: the file is installed again
+        FileUtils.writeStringToFile(jar, "bar");
+        manifest.install(jar, dest, FileOperations.COPY);
+        assertEquals("bar", FileUtils.readFileToString(dest));
+        manifest.save();
+
+        // removed file: the file is installed again
+        dest.delete();
+        manifest = new InstallManifest(manifestFile);
+        manifest.install(jar, dest, FileOperations.COPY);
+        assertEquals("bar", FileUtils.readFileToString(dest));
+    }
+
+    @Test
+    public void testUninstall() throws Exception {
+        File jar = new File(testDir, "target/foo.jar");
+        FileUtils.writeStringToFile(jar, "foo");
+        File root = new File(testDir, "debian/libfoo-java").getAbsoluteFile();
+        File usjJar = new File(root, "usr/share/java/foo.jar");
+        File usjLink = new File(root, "usr/share/java/foo-1.0.jar");
+        File repoLink = new File(root, "usr/share/maven-repo/org/foo/foo/1.0/foo-1.0.jar");
+        File debianLink = new File(root, "usr/share/maven-repo/org/foo/foo/debian/foo-debian.jar");
+        File otherJar = new File(root, "usr/share/java/bar.jar");
+        FileUtils.writeStringToFile(otherJar, "bar");
+
+        InstallManifest manifest = new InstallManifest(manifestFile);
+        manifest.install(jar, usjJar, FileOperations.COPY);
+        manifest.link("foo.jar", usjLink.getPath());
+        manifest.link("../../../../../java/foo.jar", repoLink.getPath());
+        manifest.link("../../../../../java/foo.jar", debianLink.getPath());
+        manifest.save();
+
+        manifest = new InstallManifest(manifestFile);
+        assertEquals(4, manifest.uninstall(root.getPath() + "/usr/share/"));
+        assertFalse(usjJar.exists());
+        assertFalse(Files.exists(usjLink.toPath(), LinkOption.NOFOLLOW_LINKS));
+        assertFalse(repoLink.getParentFile().exists());
+        assertFalse(debianLink.getParentFile().exists());
+        assertTrue(otherJar.exists());
+        assertTrue(jar.exists());
+
+        assertEquals(0, manifest.uninstall(root.getPath() + "/usr/share/"));
+    }
+
+    @Test
+    public void testSha256() throws Exception {
+        File file = new File(testDir, "abc.txt");
+        FileUtils.writeStringToFile(file, "abc");
+
+        assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad", InstallManifest.sha256(file));
+    }
+}
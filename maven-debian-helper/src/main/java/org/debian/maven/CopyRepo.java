@@ -0,0 +1,474 @@
+/*
+ * Copyright 2014 Debian Java Maintainers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.debian.maven;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Builds the Maven repository used during the build of a package: the version
+ * directories of /usr/share/maven-repo are linked into debian/maven-repo, the fake
+ * POMs declared in /etc/maven/fake-poms.conf and debian/fake-poms.conf are generated,
+ * and a maven-metadata-local.xml file listing the versions is written for each artifact.
+ * <p>
+ * In overlay mode the system repository isn't linked, only the fake POMs are written, and
+ * a view of the system repository merged with the fake POMs is built in debian/maven-repo-view
+ * for mh_patchpoms.
+ * <p>
+ * This replaces the find/mkdir/ln pipeline of copy-repo.sh, the system repository
+ * is scanned by several threads and no process is forked.
+ * <p>
+ * If the environment variable {@value #CACHE_VARIABLE} points to a directory, the
+ * repository built for the current state of the system is kept in this directory
+ * and the following builds get a copy made of hard links. Only the {@value #SNAPSHOTS_KEPT}
+ * most recently used snapshots are kept.
+ */
+public class CopyRepo {
+
+    private static final File SYSTEM_REPO = new File("/usr/share/maven-repo");
+    private static final File SYSTEM_FAKE_POMS = new File("/etc/maven/fake-poms.conf");
+    private static final File PACKAGE_FAKE_POMS = new File("debian/fake-poms.conf");
+    private static final File DPKG_STATUS = new File("/var/lib/dpkg/status");
+
+    /** The environment variable pointing to the directory of the shared snapshots of the repository */
+    private static final String CACHE_VARIABLE = "DEB_MAVEN_REPO_CACHE";
+
+    /** The number of snapshots kept in the cache directory, the older ones are deleted */
+    static final int SNAPSHOTS_KEPT = 3;
+
+    private final Path srcRepo;
+    private final Path destRepo;
+
+    /** The versions available for each artifact, keyed by the path of the artifact relative to the repository */
+    private final Map<String, Set<String>> versions = new HashMap<String, Set<String>>();
+
+    public CopyRepo(File srcRepo, File destRepo) {
+        this.srcRepo = srcRepo.toPath();
+        this.destRepo = destRepo.toPath();
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.out.println("ABORT: missing destination dir");
+            System.exit(1);
+        }
+
+        // with the --overlay option the artifacts of the system repository are resolved
+        // by DebianWorkspaceReader, only the fake POMs are written in the repository
+        boolean overlay = args.length > 1 && "--overlay".equals(args[1]);
+
+        File destRepo = new File(args[0], "maven-repo");
+        String cacheDir = System.getenv(CACHE_VARIABLE);
+        if (!overlay && cacheDir != null && cacheDir.length() > 0) {
+            File snapshot = getSnapshot(new File(cacheDir));
+            copySnapshot(snapshot, destRepo);
+            CopyRepo copyRepo = new CopyRepo(SYSTEM_REPO, destRepo);
+            copyRepo.fakePoms(PACKAGE_FAKE_POMS);
+            copyRepo.writeMetadata();
+            return;
+        }
+
+        CopyRepo copyRepo = new CopyRepo(SYSTEM_REPO, destRepo);
+        if (!overlay) {
+            copyRepo.linkVersions();
+        }
+        copyRepo.fakePoms(SYSTEM_FAKE_POMS, PACKAGE_FAKE_POMS);
+        copyRepo.writeMetadata();
+        if (overlay) {
+            copyRepo.mergeView(new File(args[0], "maven-repo-view"));
+        }
+    }
+
+    /**
+     * Returns the snapshot of the repository matching the current state of the system,
+     * the snapshot is created if necessary. The snapshot contains the links to the
+     * system repository and the fake POMs of /etc/maven/fake-poms.conf, it's shared
+     * by all the builds until a package is installed or removed.
+     */
+    static File getSnapshot(File cacheDir) throws IOException {
+        File snapshot = new File(cacheDir, "maven-repo-" + getSystemState());
+        if (snapshot.isDirectory()) {
+            // the snapshots are pruned by modification time, the recently used ones are kept
+            snapshot.setLastModified(System.currentTimeMillis());
+            return snapshot;
+        }
+
+        // the snapshot is built in a temporary directory and renamed when complete,
+        // a concurrent build never sees a partial snapshot
+        Path tmpDir = Files.createTempDirectory(Files.createDirectories(cacheDir.toPath()), snapshot.getName() + ".");
+        CopyRepo copyRepo = new CopyRepo(SYSTEM_REPO, tmpDir.toFile());
+        copyRepo.linkVersions();
+        copyRepo.fakePoms(SYSTEM_FAKE_POMS);
+        copyRepo.writeMetadata();
+        if (!tmpDir.toFile().renameTo(snapshot)) {
+            // created by another build in the meantime
+            execute("rm", "-rf", tmpDir.toString());
+        }
+        pruneSnapshots(cacheDir, SNAPSHOTS_KEPT);
+        return snapshot;
+    }
+
+    /**
+     * Deletes the snapshots of the cache directory except the most recently used ones.
+     * The snapshots being built by a concurrent build are left untouched.
+     */
+    static void pruneSnapshots(File cacheDir, int kept) throws IOException {
+        List<File> snapshots = new ArrayList<File>();
+        File[] files = cacheDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.isDirectory() && file.getName().matches("maven-repo-[0-9a-f]+")) {
+                    snapshots.add(file);
+                }
+            }
+        }
+        if (snapshots.size() <= kept) {
+            return;
+        }
+
+        final Map<File, Long> lastModified = new HashMap<File, Long>();
+        for (File snapshot : snapshots) {
+            lastModified.put(snapshot, snapshot.lastModified());
+        }
+        Collections.sort(snapshots, new Comparator<File>() {
+            public int compare(File f1, File f2) {
+                return lastModified.get(f2).compareTo(lastModified.get(f1));
+            }
+        });
+        for (File snapshot : snapshots.subList(kept, snapshots.size())) {
+            // renamed first, a build never copies a partially deleted snapshot
+            File trash = new File(cacheDir, snapshot.getName() + ".deleted");
+            if (snapshot.renameTo(trash)) {
+                execute("rm", "-rf", trash.getPath());
+            }
+        }
+    }
+
+    /**
+     * Returns a key identifying the state of the system repository: the dpkg database
+     * changes whenever a package is installed or removed.
+     */
+    static String getSystemState() throws IOException {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            String state = DPKG_STATUS.lastModified() + ":" + DPKG_STATUS.length() + ":" + SYSTEM_REPO.lastModified();
+            digest.update(state.getBytes("UTF-8"));
+            if (SYSTEM_FAKE_POMS.canRead()) {
+                digest.update(Files.readAllBytes(SYSTEM_FAKE_POMS.toPath()));
+            }
+            StringBuilder sb = new StringBuilder();
+            for (byte b : digest.digest()) {
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+                sb.append(Character.forDigit(b & 0xF, 16));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Copies the snapshot with hard links, the copy is independent of the snapshot
+     * as long as the files are replaced and not modified in place.
+     */
+    private static void copySnapshot(File snapshot, File destRepo) throws IOException {
+        Files.createDirectories(destRepo.toPath());
+        execute("cp", "-al", snapshot.getPath() + "/.", destRepo.getPath());
+    }
+
+    private static void execute(String... command) throws IOException {
+        Process process = new ProcessBuilder(command).inheritIO().start();
+        try {
+            if (process.waitFor() != 0) {
+                throw new IOException("Command failed: " + Arrays.toString(command));
+            }
+        } catch (InterruptedException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Links the directories of the system repository containing a POM into the destination repository.
+     */
+    public void linkVersions() throws IOException {
+        if (!Files.isDirectory(srcRepo)) {
+            return;
+        }
+        new ForkJoinPool().invoke(new ScanDirectory(srcRepo, Collections.<Path>emptyList()));
+    }
+
+    /**
+     * Scans a directory of the system repository, and its sub directories in parallel.
+     */
+    private class ScanDirectory extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Path dir;
+
+        /** The real paths of the parent directories */
+        private final List<Path> parents;
+
+        ScanDirectory(Path dir, List<Path> parents) {
+            this.dir = dir;
+            this.parents = parents;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                // the symbolic links are followed, stop if a link points to a parent directory
+                Path realDir = dir.toRealPath();
+                if (parents.contains(realDir)) {
+                    return;
+                }
+                List<Path> path = new ArrayList<Path>(parents);
+                path.add(realDir);
+
+                List<ScanDirectory> subTasks = new ArrayList<ScanDirectory>();
+                boolean hasPom = false;
+                DirectoryStream<Path> entries = Files.newDirectoryStream(dir);
+                try {
+                    for (Path entry : entries) {
+                        if (Files.isDirectory(entry)) {
+                            subTasks.add(new ScanDirectory(entry, path));
+                        } else if (entry.getFileName().toString().endsWith(".pom")) {
+                            hasPom = true;
+                        }
+                    }
+                } finally {
+                    entries.close();
+                }
+
+                if (hasPom && !dir.equals(srcRepo)) {
+                    linkVersion(srcRepo.relativize(dir));
+                }
+                invokeAll(subTasks);
+            } catch (IOException e) {
+                System.err.println("Cannot scan " + dir + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void linkVersion(Path versionDir) throws IOException {
+        Path artifactDir = versionDir.getParent();
+        Path link = destRepo.resolve(versionDir);
+        if (artifactDir != null) {
+            Files.createDirectories(destRepo.resolve(artifactDir));
+            addVersion(artifactDir.toString(), versionDir.getFileName().toString());
+        }
+        if (!Files.exists(link, LinkOption.NOFOLLOW_LINKS)) {
+            Files.createSymbolicLink(link, srcRepo.resolve(versionDir));
+        }
+    }
+
+    private void addVersion(String artifactDir, String version) {
+        synchronized (versions) {
+            Set<String> artifactVersions = versions.get(artifactDir);
+            if (artifactVersions == null) {
+                artifactVersions = new TreeSet<String>();
+                versions.put(artifactDir, artifactVersions);
+            }
+            artifactVersions.add(version);
+        }
+    }
+
+    /**
+     * Generates the fake POMs declared in the configuration files. Each line of the
+     * files contains a groupId, an artifactId, and optionally the jar and the version
+     * of the artifact.
+     */
+    public void fakePoms(File... confFiles) throws IOException {
+        for (File confFile : confFiles) {
+            if (!confFile.canRead()) {
+                continue;
+            }
+            BufferedReader reader = new BufferedReader(new FileReader(confFile));
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    int comment = line.indexOf('#');
+                    if (comment >= 0) {
+                        line = line.substring(0, comment);
+                    }
+                    String[] fields = line.trim().split("\\s+");
+                    if (fields.length < 2) {
+                        continue;
+                    }
+                    String jarFile = fields.length > 2 ? fields[2] : "/usr/share/java/" + fields[1] + ".jar";
+                    String version = fields.length > 3 ? fields[3] : "debian";
+                    fakePom(fields[0], fields[1], new File(jarFile), version);
+                }
+            } finally {
+                reader.close();
+            }
+        }
+    }
+
+    private void fakePom(String groupId, String artifactId, File jarFile, String version) throws IOException {
+        String artifactDir = groupId.replace('.', '/') + "/" + artifactId;
+        Path versionDir = destRepo.resolve(artifactDir).resolve(version);
+        if (Files.isDirectory(versionDir) || Files.isDirectory(srcRepo.resolve(artifactDir).resolve(version))) {
+            System.out.println("skip faking of existing " + groupId + ":" + artifactId + "::" + version);
+            return;
+        }
+        Files.createDirectories(versionDir);
+        addVersion(artifactDir, version);
+
+        String packaging;
+        if (jarFile.canRead()) {
+            packaging = "jar";
+            Files.createSymbolicLink(versionDir.resolve(artifactId + "-" + version + ".jar"), jarFile.toPath());
+        } else {
+            packaging = "pom";
+        }
+
+        Writer out = new FileWriter(versionDir.resolve(artifactId + "-" + version + ".pom").toFile());
+        try {
+            out.write("<project>\n");
+            out.write("  <modelVersion>4.0.0</modelVersion>\n");
+            out.write("  <groupId>" + groupId + "</groupId>\n");
+            out.write("  <artifactId>" + artifactId + "</artifactId>\n");
+            out.write("  <version>" + version + "</version>\n");
+            out.write("  <packaging>" + packaging + "</packaging>\n");
+            out.write("</project>\n");
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Writes the maven-metadata-local.xml file of each artifact with the versions found.
+     */
+    public void writeMetadata() throws IOException {
+        for (Map.Entry<String, Set<String>> entry : versions.entrySet()) {
+            writeMetadata(destRepo.resolve(entry.getKey()), entry.getValue());
+        }
+    }
+
+    private static void writeMetadata(Path artifactDir, Set<String> versions) throws IOException {
+        Set<String> artifactVersions = new TreeSet<String>(versions);
+        // keep the versions already present, e.g. when the repository is a copy of a snapshot
+        DirectoryStream<Path> versionDirs = Files.newDirectoryStream(artifactDir);
+        try {
+            for (Path versionDir : versionDirs) {
+                if (Files.isDirectory(versionDir)) {
+                    artifactVersions.add(versionDir.getFileName().toString());
+                }
+            }
+        } finally {
+            versionDirs.close();
+        }
+
+        // the file may be a hard link to the file of a snapshot, it must be replaced and not modified
+        Path metadata = artifactDir.resolve("maven-metadata-local.xml");
+        Files.deleteIfExists(metadata);
+        Writer out = new FileWriter(metadata.toFile());
+        try {
+            out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+            out.write("<metadata>\n");
+            out.write("  <versioning>\n");
+            out.write("    <versions>\n");
+            for (String version : artifactVersions) {
+                out.write("      <version>" + version + "</version>\n");
+            }
+            out.write("    </versions>\n");
+            out.write("  </versioning>\n");
+            out.write("</metadata>\n");
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Builds a view of the system repository merged with the fake POMs of the destination
+     * repository, for the tools reading a single repository like mh_patchpoms. The entries
+     * of the system repository are linked as high as possible in the tree, only the parent
+     * directories of the fake POMs are created.
+     */
+    public void mergeView(File viewDir) throws IOException {
+        Path view = viewDir.toPath();
+        if (Files.exists(view, LinkOption.NOFOLLOW_LINKS)) {
+            execute("rm", "-rf", view.toString());
+        }
+        createViewDirectory(view, null);
+        for (Map.Entry<String, Set<String>> entry : versions.entrySet()) {
+            Path artifactDir = Paths.get(entry.getKey());
+            createViewDirectory(view, artifactDir);
+            for (String version : entry.getValue()) {
+                Path link = view.resolve(artifactDir).resolve(version);
+                if (!Files.exists(link, LinkOption.NOFOLLOW_LINKS)) {
+                    Files.createSymbolicLink(link, destRepo.toAbsolutePath().resolve(artifactDir).resolve(version));
+                }
+            }
+            writeMetadata(view.resolve(artifactDir), entry.getValue());
+        }
+    }
+
+    /**
+     * Replaces the link of the view to a directory of the system repository with
+     * a real directory containing the links to the entries of the system directory.
+     *
+     * @param dir the directory relative to the repository, null for the root
+     */
+    private void createViewDirectory(Path view, Path dir) throws IOException {
+        Path viewDir = dir == null ? view : view.resolve(dir);
+        // the parents are created first, a link to the system repository is never followed
+        if (dir != null) {
+            createViewDirectory(view, dir.getParent());
+        }
+        if (Files.isDirectory(viewDir, LinkOption.NOFOLLOW_LINKS)) {
+            return;
+        }
+        Files.deleteIfExists(viewDir);
+        Files.createDirectories(viewDir);
+
+        Path srcDir = dir == null ? srcRepo : srcRepo.resolve(dir);
+        if (Files.isDirectory(srcDir)) {
+            DirectoryStream<Path> entries = Files.newDirectoryStream(srcDir);
+            try {
+                for (Path entry : entries) {
+                    Files.createSymbolicLink(viewDir.resolve(entry.getFileName().toString()), entry.toAbsolutePath());
+                }
+            } finally {
+                entries.close();
+            }
+        }
+    }
+}
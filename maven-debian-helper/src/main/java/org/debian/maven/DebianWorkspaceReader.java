@@ -0,0 +1,98 @@
+/*
+ * Copyright 2014 Debian Java Maintainers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.debian.maven;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.sonatype.aether.artifact.Artifact;
+import org.sonatype.aether.repository.WorkspaceReader;
+import org.sonatype.aether.repository.WorkspaceRepository;
+
+/**
+ * Resolves the artifacts directly from the system repository /usr/share/maven-repo.
+ * Maven looks up this reader before the local repository, the local repository
+ * (debian/maven-repo) then only contains the fake POMs and the artifacts installed
+ * by the build, and it's no longer necessary to mirror the system repository with
+ * symbolic links.
+ * <p>
+ * The reader is registered with the 'ide' hint used by Maven for the workspace reader
+ * and is loaded with maven-debian-helper.jar by /etc/maven/m2-debian.conf. It's only
+ * enabled if the system property {@value #OVERLAY_PROPERTY} is true.
+ */
+public class DebianWorkspaceReader implements WorkspaceReader {
+
+    public static final String OVERLAY_PROPERTY = "debian.repo.overlay";
+
+    private static final File SYSTEM_REPO = new File("/usr/share/maven-repo");
+
+    private final WorkspaceRepository repository = new WorkspaceRepository("debian");
+
+    private final File repoDir;
+    private final boolean enabled;
+
+    public DebianWorkspaceReader() {
+        this(SYSTEM_REPO, Boolean.getBoolean(OVERLAY_PROPERTY));
+    }
+
+    DebianWorkspaceReader(File repoDir, boolean enabled) {
+        this.repoDir = repoDir;
+        this.enabled = enabled;
+    }
+
+    public WorkspaceRepository getRepository() {
+        return repository;
+    }
+
+    private File getArtifactDir(Artifact artifact) {
+        return new File(repoDir, artifact.getGroupId().replace('.', '/') + "/" + artifact.getArtifactId());
+    }
+
+    public File findArtifact(Artifact artifact) {
+        if (!enabled) {
+            return null;
+        }
+        StringBuilder name = new StringBuilder();
+        name.append(artifact.getArtifactId()).append('-').append(artifact.getVersion());
+        if (artifact.getClassifier().length() > 0) {
+            name.append('-').append(artifact.getClassifier());
+        }
+        name.append('.').append(artifact.getExtension());
+
+        File file = new File(new File(getArtifactDir(artifact), artifact.getVersion()), name.toString());
+        return file.isFile() ? file : null;
+    }
+
+    public List<String> findVersions(Artifact artifact) {
+        if (!enabled) {
+            return Collections.emptyList();
+        }
+        List<String> versions = new ArrayList<String>();
+        File[] versionDirs = getArtifactDir(artifact).listFiles();
+        if (versionDirs != null) {
+            for (File versionDir : versionDirs) {
+                String version = versionDir.getName();
+                if (new File(versionDir, artifact.getArtifactId() + "-" + version + ".pom").isFile()) {
+                    versions.add(version);
+                }
+            }
+        }
+        return versions;
+    }
+}
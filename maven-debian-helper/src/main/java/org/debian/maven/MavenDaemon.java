@@ -0,0 +1,397 @@
+/*
+ * Copyright 2014 Debian Java Maintainers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.debian.maven;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.maven.cli.MavenCli;
+
+/**
+ * A Maven process kept running between the Maven invocations of a package build.
+ * The daemon executes the builds with the same {@link MavenCli} instance, the plexus
+ * container, the plugin realms and the plugin descriptors are thus loaded only once
+ * and the JVM is already warm for the following invocations.
+ * <p>
+ * The daemon listens on a socket bound to the loopback interface. The port and a random
+ * token authenticating the clients are written in a file readable only by the user,
+ * the clients connect to the daemon found in this file or start a new one. A client running
+ * in another directory or in a JVM configured differently (JDK, classpath, options and system
+ * properties, e.g. another classworlds.conf) is rejected and runs Maven in its own JVM. The daemon
+ * exits when it's idle for {@value #DEFAULT_IDLE_TIMEOUT} seconds (configurable with
+ * the {@value #TIMEOUT_PROPERTY} system property) or when it's explicitly stopped.
+ */
+class MavenDaemon {
+
+    static final String SERVE_ARGUMENT = "--debian-daemon";
+    static final String STOP_ARGUMENT = "--debian-daemon-stop";
+
+    private static final String TIMEOUT_PROPERTY = "debian.maven.daemon.timeout";
+    private static final int DEFAULT_IDLE_TIMEOUT = 600;
+
+    /** The time to wait for the start of a daemon, in seconds */
+    private static final int START_TIMEOUT = 60;
+
+    private static final String LAUNCHER = "org.codehaus.plexus.classworlds.launcher.Launcher";
+
+    private static final String RUN = "run";
+    private static final String STOP = "stop";
+
+    private static final int EXIT = 0;
+    private static final int STDOUT = 1;
+    private static final int STDERR = 2;
+    private static final int REJECTED = 3;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /** The file containing the port and the token of the daemon */
+    private final File stateFile;
+
+    MavenDaemon(File stateFile) {
+        this.stateFile = stateFile;
+    }
+
+    // ----------------------------------------------------------------------
+    // Client
+    // ----------------------------------------------------------------------
+
+    /**
+     * Executes Maven in the daemon, the daemon is started if it isn't running.
+     *
+     * @return the exit code of Maven, or null if the daemon isn't available
+     */
+    public Integer execute(String[] args) throws IOException {
+        Socket socket = connect();
+        if (socket == null) {
+            start();
+            for (int i = 0; i < START_TIMEOUT * 10 && socket == null; i++) {
+                sleep(100);
+                socket = connect();
+            }
+            if (socket == null) {
+                System.err.println("The Maven daemon didn't start, see " + getLogFile());
+                return null;
+            }
+        }
+
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            out.writeUTF(RUN);
+            out.writeUTF(new File("").getAbsolutePath());
+            List<String> configuration = getJvmConfiguration();
+            out.writeInt(configuration.size());
+            for (String value : configuration) {
+                out.writeUTF(value);
+            }
+            out.writeInt(args.length);
+            for (String arg : args) {
+                out.writeUTF(arg);
+            }
+            out.flush();
+
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            while (true) {
+                int type = in.readByte();
+                if (type == EXIT) {
+                    return in.readInt();
+                } else if (type == REJECTED) {
+                    return null;
+                }
+                byte[] data = new byte[in.readInt()];
+                in.readFully(data);
+                PrintStream stream = type == STDERR ? System.err : System.out;
+                stream.write(data);
+                stream.flush();
+            }
+        } catch (EOFException e) {
+            System.err.println("The connection to the Maven daemon was lost, see " + getLogFile());
+            return 1;
+        } finally {
+            socket.close();
+        }
+    }
+
+    /**
+     * Stops the daemon if it's running.
+     */
+    public void stop() throws IOException {
+        Socket socket = connect();
+        if (socket != null) {
+            try {
+                DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+                out.writeUTF(STOP);
+                out.flush();
+                socket.getInputStream().read();
+            } finally {
+                socket.close();
+            }
+        }
+    }
+
+    /**
+     * Connects to the daemon and authenticates the client.
+     *
+     * @return the socket connected, or null if no daemon is running
+     */
+    private Socket connect() throws IOException {
+        if (!stateFile.exists()) {
+            return null;
+        }
+        String[] state = new String(Files.readAllBytes(stateFile.toPath()), UTF8).trim().split(" ");
+        if (state.length != 2) {
+            return null;
+        }
+        Socket socket = new Socket();
+        try {
+            socket.connect(new InetSocketAddress(InetAddress.getByName(null), Integer.parseInt(state[0])));
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            out.writeUTF(state[1]);
+            out.flush();
+            return socket;
+        } catch (IOException e) {
+            // the daemon is gone
+            socket.close();
+            return null;
+        }
+    }
+
+    /**
+     * Returns the configuration of the current JVM: the JDK, the classpath and the
+     * input arguments. The daemon only runs the builds of the clients configured
+     * like the JVM it was started from.
+     */
+    private static List<String> getJvmConfiguration() {
+        List<String> configuration = new ArrayList<String>();
+        configuration.add(System.getProperty("java.home"));
+        configuration.add(System.getProperty("java.class.path"));
+        configuration.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+        return configuration;
+    }
+
+    /**
+     * Starts the daemon in a new JVM with the same options as the current one.
+     */
+    private void start() throws IOException {
+        List<String> command = new ArrayList<String>();
+        command.add(System.getProperty("java.home") + "/bin/java");
+        command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(LAUNCHER);
+        command.add(SERVE_ARGUMENT);
+
+        File logFile = getLogFile();
+        ProcessBuilder builder = new ProcessBuilder(command);
+        builder.redirectErrorStream(true);
+        builder.redirectOutput(logFile);
+        builder.redirectInput(ProcessBuilder.Redirect.from(new File("/dev/null")));
+        builder.start();
+    }
+
+    private File getLogFile() {
+        return new File(stateFile.getPath() + ".log");
+    }
+
+    private static void sleep(long millis) throws IOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            throw new IOException(e);
+        }
+    }
+
+    // ----------------------------------------------------------------------
+    // Server
+    // ----------------------------------------------------------------------
+
+    /**
+     * Runs the daemon until it's stopped or idle.
+     */
+    public int serve() throws IOException {
+        ServerSocket server = new ServerSocket(0, 50, InetAddress.getByName(null));
+        server.setSoTimeout(Integer.getInteger(TIMEOUT_PROPERTY, DEFAULT_IDLE_TIMEOUT) * 1000);
+        String token = new BigInteger(130, new SecureRandom()).toString(32);
+        String workingDirectory = new File("").getAbsolutePath();
+        List<String> configuration = getJvmConfiguration();
+        MavenCli cli = new MavenCli();
+
+        writeState(server.getLocalPort(), token);
+        try {
+            boolean stopped = false;
+            while (!stopped) {
+                Socket socket;
+                try {
+                    socket = server.accept();
+                } catch (SocketTimeoutException e) {
+                    System.out.println("Maven daemon idle, exiting");
+                    break;
+                }
+                try {
+                    stopped = handle(socket, token, workingDirectory, configuration, cli);
+                } catch (IOException e) {
+                    System.out.println("Request failed: " + e.getMessage());
+                } finally {
+                    socket.close();
+                }
+            }
+        } finally {
+            stateFile.delete();
+            server.close();
+        }
+        return 0;
+    }
+
+    private void writeState(int port, String token) throws IOException {
+        File tmpFile = new File(stateFile.getPath() + ".tmp");
+        Files.write(tmpFile.toPath(), (port + " " + token + "\n").getBytes(UTF8));
+        Files.setPosixFilePermissions(tmpFile.toPath(), PosixFilePermissions.fromString("rw-------"));
+        Files.move(tmpFile.toPath(), stateFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Handles a request of a client.
+     *
+     * @return true if the daemon must stop
+     */
+    private boolean handle(Socket socket, String token, String workingDirectory, List<String> configuration, MavenCli cli) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        if (!token.equals(in.readUTF())) {
+            System.out.println("Rejected a client with an invalid token");
+            return false;
+        }
+        String command = in.readUTF();
+        if (STOP.equals(command)) {
+            out.writeByte(EXIT);
+            out.writeInt(0);
+            out.flush();
+            return true;
+        }
+
+        // The relative paths used by the plugins are resolved against the
+        // directory of the daemon, the client must be in the same directory
+        String clientDirectory = in.readUTF();
+        List<String> clientConfiguration = new ArrayList<String>();
+        int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            clientConfiguration.add(in.readUTF());
+        }
+        String[] args = new String[in.readInt()];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = in.readUTF();
+        }
+        if (!workingDirectory.equals(clientDirectory)) {
+            System.out.println("Rejected a client running in " + clientDirectory);
+            out.writeByte(REJECTED);
+            out.flush();
+            return false;
+        }
+        // The classpath, the classworlds configuration and the system properties
+        // are those of the daemon, the client must be started with the same ones
+        if (!configuration.equals(clientConfiguration)) {
+            System.out.println("Rejected a client started with a different JVM configuration: " + clientConfiguration);
+            out.writeByte(REJECTED);
+            out.flush();
+            return false;
+        }
+
+        PrintStream stdout = new PrintStream(new FrameOutputStream(out, STDOUT), true);
+        PrintStream stderr = new PrintStream(new FrameOutputStream(out, STDERR), true);
+        PrintStream systemOut = System.out;
+        PrintStream systemErr = System.err;
+        // the -D options of the command line are set as system properties by Maven
+        Properties systemProperties = (Properties) System.getProperties().clone();
+        int exitCode;
+        System.setOut(stdout);
+        System.setErr(stderr);
+        try {
+            exitCode = cli.doMain(args, workingDirectory, stdout, stderr);
+        } finally {
+            System.setOut(systemOut);
+            System.setErr(systemErr);
+            System.setProperties(systemProperties);
+        }
+        stdout.flush();
+        stderr.flush();
+        synchronized (out) {
+            out.writeByte(EXIT);
+            out.writeInt(exitCode);
+            out.flush();
+        }
+        return false;
+    }
+
+    /**
+     * Sends the output written to the stream to the client, prefixed by its type and length.
+     */
+    private static class FrameOutputStream extends OutputStream {
+
+        private final DataOutputStream out;
+        private final int type;
+
+        FrameOutputStream(DataOutputStream out, int type) {
+            this.out = out;
+            this.type = type;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return;
+            }
+            synchronized (out) {
+                out.writeByte(type);
+                out.writeInt(len);
+                out.write(b, off, len);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            synchronized (out) {
+                out.flush();
+            }
+        }
+    }
+}
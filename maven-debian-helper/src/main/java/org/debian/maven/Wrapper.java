@@ -16,8 +16,10 @@
 
 package org.debian.maven;
 
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Enumeration;
 import java.util.Properties;
 
@@ -28,9 +30,13 @@ import org.codehaus.plexus.util.IOUtil;
  * This is a wrapper for Maven's main function that allows extra arguments
  * to be specified by a properties file. Properties are read from the file
  * specified by the system property {@value #EXTRA_PROPERTIES_PROPERTY}.
+ * <p>
+ * If the system property {@value #DAEMON_PROPERTY} is set, Maven is executed by
+ * a {@link MavenDaemon} whose state is stored in the file specified by the property.
  */
 public class Wrapper {
     private static final String EXTRA_PROPERTIES_PROPERTY = "properties.file.manual";
+    private static final String DAEMON_PROPERTY = "debian.maven.daemon";
     
     /**
      * Reads the properties in the file specified by the given system property.
@@ -83,9 +89,27 @@ public class Wrapper {
      * Wraps maven's main function
      */
     public static int main(String[] args) throws IOException {
+        String daemonFile = System.getProperty(DAEMON_PROPERTY);
+        MavenDaemon daemon = daemonFile != null ? new MavenDaemon(new File(daemonFile)) : null;
+        if (daemon != null && Arrays.asList(args).contains(MavenDaemon.SERVE_ARGUMENT)) {
+            return daemon.serve();
+        }
+        if (daemon != null && Arrays.asList(args).contains(MavenDaemon.STOP_ARGUMENT)) {
+            daemon.stop();
+            return 0;
+        }
+
         Properties extraArguments = readProperties(EXTRA_PROPERTIES_PROPERTY);
         String[] newArgs = updateCommandLine(extraArguments, args);
-        
+
+        if (daemon != null) {
+            Integer exitCode = daemon.execute(newArgs);
+            if (exitCode != null) {
+                return exitCode;
+            }
+            System.err.println("The Maven daemon is unavailable or configured differently, running Maven in the current process");
+        }
+
         MavenCli.main(newArgs);
         return 0;
     }
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2014 Debian Java Maintainers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.debian.maven;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.TreeSet;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CopyRepoTest {
+
+    private File cacheDir = new File("target/tmp/copy-repo-cache");
+
+    @After
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(cacheDir);
+    }
+
+    private File createSnapshot(String name, long lastModified) throws Exception {
+        File snapshot = new File(cacheDir, name);
+        FileUtils.writeStringToFile(new File(snapshot, "org/foo/foo/1.0/foo-1.0.pom"), "<project/>");
+        snapshot.setLastModified(lastModified);
+        return snapshot;
+    }
+
+    @Test
+    public void testPruneSnapshots() throws Exception {
+        long now = System.currentTimeMillis();
+        createSnapshot("maven-repo-0a", now - 40000);
+        createSnapshot("maven-repo-0b", now - 10000);
+        createSnapshot("maven-repo-0c", now - 30000);
+        createSnapshot("maven-repo-0d", now);
+        createSnapshot("maven-repo-0e.12345", now - 50000);
+
+        CopyRepo.pruneSnapshots(cacheDir, 2);
+
+        // the snapshot being built isn't deleted
+        assertEquals(new TreeSet<String>(Arrays.asList("maven-repo-0b", "maven-repo-0d", "maven-repo-0e.12345")),
+                new TreeSet<String>(Arrays.asList(cacheDir.list())));
+
+        CopyRepo.pruneSnapshots(cacheDir, 2);
+        assertEquals(3, cacheDir.list().length);
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2014 Debian Java Maintainers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.debian.maven;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sonatype.aether.artifact.Artifact;
+import org.sonatype.aether.repository.WorkspaceReader;
+import org.sonatype.aether.repository.WorkspaceRepository;
+import org.sonatype.aether.util.artifact.DefaultArtifact;
+import org.sonatype.aether.util.repository.ChainedWorkspaceReader;
+
+import static org.junit.Assert.*;
+
+public class DebianWorkspaceReaderTest {
+
+    private File testDir = new File("target/tmp/workspace-reader");
+    private File systemRepo = new File(testDir, "usr/share/maven-repo");
+    private File overlayRepo = new File(testDir, "debian/maven-repo");
+    private File viewRepo = new File(testDir, "debian/maven-repo-view");
+
+    @Before
+    public void setUp() throws Exception {
+        FileUtils.writeStringToFile(new File(systemRepo, "org/foo/foo/1.0/foo-1.0.pom"), "<project/>");
+        FileUtils.writeStringToFile(new File(systemRepo, "org/foo/foo/1.0/foo-1.0.jar"), "foo");
+        FileUtils.writeStringToFile(new File(systemRepo, "org/foo/foo/1.0/foo-1.0-sources.jar"), "foo sources");
+        FileUtils.writeStringToFile(new File(systemRepo, "org/foo/foo/debian/foo-debian.pom"), "<project/>");
+        FileUtils.writeStringToFile(new File(systemRepo, "org/foo/foo/debian/foo-debian.jar"), "foo");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(testDir);
+    }
+
+    @Test
+    public void testSystemRepository() throws Exception {
+        DebianWorkspaceReader reader = new DebianWorkspaceReader(systemRepo, true);
+
+        assertEquals(new File(systemRepo, "org/foo/foo/1.0/foo-1.0.jar"), reader.findArtifact(new DefaultArtifact("org.foo:foo:jar:1.0")));
+        assertEquals(new File(systemRepo, "org/foo/foo/1.0/foo-1.0.pom"), reader.findArtifact(new DefaultArtifact("org.foo:foo:pom:1.0")));
+        assertEquals(new File(systemRepo, "org/foo/foo/1.0/foo-1.0-sources.jar"), reader.findArtifact(new DefaultArtifact("org.foo:foo:jar:sources:1.0")));
+        assertNull(reader.findArtifact(new DefaultArtifact("org.foo:foo:jar:javadoc:1.0")));
+        assertNull(reader.findArtifact(new DefaultArtifact("org.foo:foo:jar:2.0")));
+        assertEquals(Arrays.asList("1.0", "debian"), sorted(reader.findVersions(new DefaultArtifact("org.foo:foo:jar:1.0"))));
+        assertTrue(reader.findVersions(new DefaultArtifact("org.bar:bar:jar:1.0")).isEmpty());
+
+        DebianWorkspaceReader disabled = new DebianWorkspaceReader(systemRepo, false);
+        assertNull(disabled.findArtifact(new DefaultArtifact("org.foo:foo:jar:1.0")));
+        assertTrue(disabled.findVersions(new DefaultArtifact("org.foo:foo:jar:1.0")).isEmpty());
+    }
+
+    @Test
+    public void testOverlay() throws Exception {
+        File fakePoms = new File(testDir, "debian/fake-poms.conf");
+        FileUtils.writeStringToFile(fakePoms, "org.foo foo\norg.foo foo-extra\norg.bar bar\n");
+
+        CopyRepo copyRepo = new CopyRepo(systemRepo, overlayRepo);
+        copyRepo.fakePoms(fakePoms);
+        copyRepo.writeMetadata();
+        copyRepo.mergeView(viewRepo);
+
+        // the overlay only contains the fake POMs of the versions missing from the system repository
+        assertFalse(new File(overlayRepo, "org/foo/foo").exists());
+        assertTrue(new File(overlayRepo, "org/foo/foo-extra/debian/foo-extra-debian.pom").isFile());
+        assertTrue(new File(overlayRepo, "org/bar/bar/debian/bar-debian.pom").isFile());
+
+        // the fake POMs are resolved by Maven from the local repository, not by the reader
+        DebianWorkspaceReader reader = new DebianWorkspaceReader(systemRepo, true);
+        assertNull(reader.findArtifact(new DefaultArtifact("org.bar:bar:pom:debian")));
+        assertEquals(new File(systemRepo, "org/foo/foo/debian/foo-debian.pom"), reader.findArtifact(new DefaultArtifact("org.foo:foo:pom:debian")));
+
+        // the view read by mh_patchpoms contains both the system repository and the fake POMs
+        assertTrue(Files.isSymbolicLink(viewRepo.toPath().resolve("org/foo/foo")));
+        assertFalse(Files.isSymbolicLink(viewRepo.toPath().resolve("org/foo")));
+        assertTrue(new File(viewRepo, "org/foo/foo/1.0/foo-1.0.pom").isFile());
+        assertTrue(new File(viewRepo, "org/foo/foo-extra/debian/foo-extra-debian.pom").isFile());
+        assertTrue(new File(viewRepo, "org/bar/bar/debian/bar-debian.pom").isFile());
+        assertTrue(FileUtils.readFileToString(new File(viewRepo, "org/bar/bar/maven-metadata-local.xml")).contains("<version>debian</version>"));
+        assertFalse("System repository modified", new File(systemRepo, "org/foo/foo-extra").exists());
+    }
+
+    @Test
+    public void testReactor() throws Exception {
+        final File moduleJar = new File(testDir, "foo/target/foo-1.0.jar");
+        final File moduleSnapshotJar = new File(testDir, "baz/target/baz-2.0-SNAPSHOT.jar");
+        WorkspaceReader reactor = new WorkspaceReader() {
+            public WorkspaceRepository getRepository() {
+                return new WorkspaceRepository("reactor");
+            }
+
+            public File findArtifact(Artifact artifact) {
+                if ("foo".equals(artifact.getArtifactId()) && "1.0".equals(artifact.getVersion())) {
+                    return moduleJar;
+                } else if ("baz".equals(artifact.getArtifactId())) {
+                    return moduleSnapshotJar;
+                }
+                return null;
+            }
+
+            public List<String> findVersions(Artifact artifact) {
+                if ("foo".equals(artifact.getArtifactId())) {
+                    return Collections.singletonList("1.0");
+                } else if ("baz".equals(artifact.getArtifactId())) {
+                    return Collections.singletonList("2.0-SNAPSHOT");
+                }
+                return Collections.emptyList();
+            }
+        };
+
+        // Maven looks up the modules of the reactor before the workspace reader
+        WorkspaceReader reader = ChainedWorkspaceReader.newInstance(reactor, new DebianWorkspaceReader(systemRepo, true));
+
+        assertEquals(moduleJar, reader.findArtifact(new DefaultArtifact("org.foo:foo:jar:1.0")));
+        assertEquals(moduleSnapshotJar, reader.findArtifact(new DefaultArtifact("org.baz:baz:jar:2.0-SNAPSHOT")));
+        assertEquals(new File(systemRepo, "org/foo/foo/debian/foo-debian.jar"), reader.findArtifact(new DefaultArtifact("org.foo:foo:jar:debian")));
+        assertEquals(Arrays.asList("1.0", "debian"), sorted(reader.findVersions(new DefaultArtifact("org.foo:foo:jar:1.0"))));
+    }
+
+    private static List<String> sorted(List<String> versions) {
+        return Arrays.asList(new TreeSet<String>(versions).toArray(new String[0]));
+    }
+}
@@ -62,6 +62,13 @@ public class DebianDependency implements Comparable<DebianDependency> {
         return packageName;
     }
 
+    /**
+     * Returns the minimum version required, empty if none.
+     */
+    public String getMinimumVersion() {
+        return minimumVersion;
+    }
+
     /**
      * Returns the string representation of the dependency using the syntax
      * of the Debian control files:
@@ -28,7 +28,9 @@ import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.plugins.annotations.ResolutionScope;
 import org.apache.maven.project.MavenProject;
 import org.debian.maven.packager.util.PackageScanner;
+import org.debian.maven.packager.util.PackageScannerCache;
 import org.debian.maven.repo.DependencyRuleSetFiles.RulesType;
+import org.debian.maven.repo.ListOfPOMs;
 
 /**
  * Analyze the Maven dependencies and extract the list of dependent packages,
@@ -100,18 +102,87 @@ public class DependenciesMojo extends AbstractMojo {
     @Parameter(property = "offline", defaultValue = "false")
     protected boolean offline;
     
+    /**
+     * Index the dpkg database once instead of running dpkg --search for each file
+     */
+    @Parameter(property = "dpkgIndex", defaultValue = "false")
+    protected boolean dpkgIndex;
+    
     /**
      * Try to be verbose
      */
     @Parameter(property = "verbose", defaultValue = "false")
     protected boolean verbose;
 
+    /**
+     * The list of POMs already read by a previous goal of the same session
+     */
+    private ListOfPOMs parsedListOfPoms;
+
+    /**
+     * The problems found while solving the dependencies
+     */
+    private List<String> issues = new ArrayList<String>();
+
+    public void setProject(MavenProject project) {
+        this.project = project;
+    }
+
+    public void setCollectedProjects(List<MavenProject> collectedProjects) {
+        this.collectedProjects = collectedProjects;
+    }
+
+    public void setOutputDirectory(File outputDirectory) {
+        this.outputDirectory = outputDirectory;
+    }
+
+    public void setPackageName(String packageName) {
+        this.packageName = packageName;
+    }
+
+    public void setPackageType(String packageType) {
+        this.packageType = packageType;
+    }
+
+    public void setResolveJavadoc(boolean resolveJavadoc) {
+        this.resolveJavadoc = resolveJavadoc;
+    }
+
+    public void setListOfPoms(File listOfPoms) {
+        this.listOfPoms = listOfPoms;
+    }
+
+    public void setParsedListOfPoms(ListOfPOMs parsedListOfPoms) {
+        this.parsedListOfPoms = parsedListOfPoms;
+    }
+
+    public void setMavenRepo(File mavenRepo) {
+        this.mavenRepo = mavenRepo;
+    }
+
+    public void setInteractive(boolean interactive) {
+        this.interactive = interactive;
+    }
+
+    public void setOffline(boolean offline) {
+        this.offline = offline;
+    }
+
+    public List<String> getIssues() {
+        return issues;
+    }
+
     public void execute() throws MojoExecutionException {
         if (!outputDirectory.exists()) {
             outputDirectory.mkdirs();
         }
 
-        DependenciesSolver solver = new DependenciesSolver(outputDirectory, new PackageScanner(offline), interactive);
+        PackageScanner scanner = new PackageScanner(offline, dpkgIndex);
+        if (!offline) {
+            // Debian builds run offline and must not write outside of the build directory
+            scanner.setCache(new PackageScannerCache(PackageScannerCache.getDefaultCacheFile()));
+        }
+        DependenciesSolver solver = new DependenciesSolver(outputDirectory, scanner, interactive);
 
         File basedir = project.getBasedir();
         // TODO: use the list of project defined here for some initialisation step, I've forgotten what to do...
@@ -128,6 +199,9 @@ public class DependenciesMojo extends AbstractMojo {
         solver.packageName = packageName;
         solver.packageType = packageType;
         solver.generateJavadoc = resolveJavadoc;
+        if (parsedListOfPoms != null) {
+            solver.pomTransformer.setListOfPOMs(parsedListOfPoms);
+        }
         solver.setListOfPoms(listOfPoms);
         solver.verbose = verbose;
 
@@ -142,6 +216,7 @@ public class DependenciesMojo extends AbstractMojo {
         solver.pomTransformer.getListOfPOMs().save();
         solver.pomTransformer.getRulesFiles().save(outputDirectory, RulesType.RULES);
         solver.saveSubstvars();
+        issues = solver.issues;
     }
 
 }
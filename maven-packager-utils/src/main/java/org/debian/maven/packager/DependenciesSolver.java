@@ -23,6 +23,11 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
@@ -43,10 +48,10 @@ import org.debian.maven.repo.ListOfPOMs;
 import org.debian.maven.repo.POMHandler;
 import org.debian.maven.repo.POMInfo;
 import org.debian.maven.repo.POMOptions;
+import org.debian.maven.repo.POMReader;
 import org.debian.maven.repo.Substvars;
 import org.debian.maven.repo.DependencyRuleSetFiles.RulesType;
 import org.debian.maven.repo.POMInfo.DependencyType;
-import org.debian.maven.repo.POMTransformer;
 import org.debian.maven.repo.Repository;
 import org.debian.maven.repo.Rule;
 
@@ -65,7 +70,7 @@ public class DependenciesSolver {
     private final IgnoreDependencyQuestions ignoreDependencyQuestion;
 
     private File baseDir;
-    final POMTransformer pomTransformer = new POMTransformer();
+    final POMAnalyzer pomTransformer = new POMAnalyzer();
     private final File outputDirectory;
     String packageName;
     String packageType;
@@ -73,12 +78,15 @@ public class DependenciesSolver {
     File mavenRepo = new File("/usr/share/maven-repo");
     // explore (search) for additional pom files or look only for those defined in debian/*.poms?
     boolean exploreProjects;
-    private Repository repository;
+    private LazyRepository repository;
     List<String> issues = new ArrayList<String>();
-    private List<Dependency> projectPoms = new ArrayList<Dependency>();
+    private DependencyIndex projectPoms = new DependencyIndex();
     private List<ToResolve> toResolve = new ArrayList<ToResolve>();
-    private Set<Dependency> knownProjectDependencies = new TreeSet<Dependency>();
-    private Set<Dependency> ignoredDependencies = new TreeSet<Dependency>();
+    private DependencyIndex knownProjectDependencies = new DependencyIndex();
+    private DependencyIndex ignoredDependencies = new DependencyIndex();
+    /** The plugins managed by the super POM of the repository */
+    private DependencyIndex defaultMavenPlugins;
+    private POMInfo defaultMavenPluginsSource;
 
     private DebianDependencies debianDeps = new DebianDependencies();
     boolean runTests;
@@ -87,10 +95,10 @@ public class DependenciesSolver {
     private boolean askedToFilterModules = false;
     private boolean filterModules = false;
     boolean verbose = false;
-    private Map<String, POMInfo> pomInfoCache = new HashMap<String, POMInfo>();
+    private Map<String, POMInfo> pomInfoCache = Collections.synchronizedMap(new HashMap<String, POMInfo>());
 
     /** The original POMs for reference */
-    private Map<String, POMInfo> originalPomInfoCache = new HashMap<String, POMInfo>();
+    private Map<String, POMInfo> originalPomInfoCache = Collections.synchronizedMap(new HashMap<String, POMInfo>());
 
     /** Map of the previously selected rule for a given version */
     private Map<String, Rule> versionToRules = new HashMap<String, Rule>();
@@ -101,6 +109,21 @@ public class DependenciesSolver {
     private List<Rule> defaultRules = new ArrayList<Rule>();
     private PackageScanner scanner;
 
+    /** Number of threads resolving the dependencies in non interactive mode */
+    int threads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Changes to the state of the solver deferred by the thread resolving a POM,
+     * they are applied in the order of the POMs once all the POMs are resolved.
+     */
+    private final ThreadLocal<Resolution> currentResolution = new ThreadLocal<Resolution>();
+
+    /** The dependencies resolved by the previous run, reused in non interactive mode */
+    private ResolutionGraph resolutionGraph;
+
+    /** The identifiers of the POMs of the project, sorted */
+    private Set<String> projectPomIds = new TreeSet<String>();
+
     public DependenciesSolver(File outputDirectory, PackageScanner scanner, boolean interactive) {
         this.outputDirectory = outputDirectory;
         this.scanner = scanner;
@@ -147,13 +170,15 @@ public class DependenciesSolver {
         return sb.toString();
     }
 
-    private boolean isDefaultMavenPlugin(Dependency dependency) {
+    private synchronized boolean isDefaultMavenPlugin(Dependency dependency) {
         if (getRepository() != null && getRepository().getSuperPOM() != null) {
-            for (Dependency defaultPlugin : getRepository().getSuperPOM().getDependencies().get(DependencyType.PLUGIN_MANAGEMENT)) {
-                if (defaultPlugin.equalsIgnoreVersion(dependency)) {
-                    return true;
-                }
+            POMInfo superPom = getRepository().getSuperPOM();
+            // Index the plugins again if the repository has been rescanned
+            if (defaultMavenPluginsSource != superPom) {
+                defaultMavenPlugins = new DependencyIndex(superPom.getDependencies().get(DependencyType.PLUGIN_MANAGEMENT));
+                defaultMavenPluginsSource = superPom;
             }
+            return defaultMavenPlugins.containsIgnoreVersion(dependency);
         }
         return false;
     }
@@ -184,10 +209,143 @@ public class DependenciesSolver {
                 }
             } catch (DependencyNotFoundException e) {
                 log.log(Level.SEVERE, "Cannot resolve dependencies in " + sourcePom + ": " + e.getMessage());
+                failed();
             } catch (Exception e) {
                 log.log(Level.SEVERE, "Cannot resolve dependencies in " + sourcePom + ": " + e.getMessage(), e);
+                failed();
             }
         }
+
+        private void failed() {
+            if (currentResolution.get() != null) {
+                currentResolution.get().setFailed(true);
+            }
+        }
+
+        /**
+         * Resolves the dependencies and returns the changes to apply to the solver
+         * instead of applying them immediately.
+         */
+        public Resolution resolveDeferred() {
+            Resolution resolution = new Resolution();
+            currentResolution.set(resolution);
+            try {
+                resolve();
+            } finally {
+                currentResolution.remove();
+            }
+            return resolution;
+        }
+
+        /**
+         * Identifies the list of dependencies resolved in the resolution graph.
+         */
+        public String getKey() {
+            return IOUtil.relativePath(baseDir, sourcePom) + ":" + listType.name();
+        }
+
+        /**
+         * Returns the hash of the inputs specific to this POM: its content, the content of
+         * the POMs of the project in the parent directories and the options of the POM.
+         */
+        public String getInputsHash() {
+            List<File> poms = new ArrayList<File>();
+            poms.add(sourcePom);
+            File dir = sourcePom.getAbsoluteFile().getParentFile();
+            File base = baseDir.getAbsoluteFile();
+            while (dir != null && !dir.equals(base) && dir.getPath().startsWith(base.getPath())) {
+                dir = dir.getParentFile();
+                poms.add(new File(dir, "pom.xml"));
+            }
+            POMOptions options = pomTransformer.getListOfPOMs().getOrCreatePOMOptions(sourcePom);
+            return ResolutionGraph.hash(poms.toArray(new File[poms.size()]),
+                    String.valueOf(options.isNoParent()), String.valueOf(options.getHasPackageVersion()));
+        }
+    }
+
+    /**
+     * Applies a change to the state of the solver, or defers it if the current thread
+     * is resolving the dependencies of a POM.
+     */
+    private void apply(Resolution.Change change) {
+        Resolution resolution = currentResolution.get();
+        if (resolution != null) {
+            resolution.add(change);
+        } else {
+            applyNow(change);
+        }
+    }
+
+    private void applyNow(Resolution.Change change) {
+        switch (change.getKind()) {
+            case ISSUE:
+                issues.add((String) change.getValue(0));
+                break;
+            case IGNORE:
+                ignoredDependencies.add((Dependency) change.getValue(0));
+                break;
+            case RULE:
+                pomTransformer.getRulesFiles().get((RulesType) change.getValue(0)).add((DependencyRule) change.getValue(1));
+                break;
+            case DEPENDS:
+                debianDeps.add((DebianDependencies.Type) change.getValue(0), (DebianDependency) change.getValue(1));
+                break;
+            case VERSIONED:
+                versionedPackagesAndDependencies.put((DebianDependency) change.getValue(0), (Dependency) change.getValue(1));
+                break;
+        }
+    }
+
+    private void addIssue(String issue) {
+        apply(new Resolution.Change(Resolution.Kind.ISSUE, issue));
+    }
+
+    private void ignoreDependency(Dependency dependency) {
+        apply(new Resolution.Change(Resolution.Kind.IGNORE, dependency));
+    }
+
+    private void addRule(RulesType type, DependencyRule rule) {
+        apply(new Resolution.Change(Resolution.Kind.RULE, type, rule));
+    }
+
+    private void addRules(RulesType type, Collection<DependencyRule> rules) {
+        for (DependencyRule rule : rules) {
+            addRule(type, rule);
+        }
+    }
+
+    private void addDebianDependency(DebianDependencies.Type type, DebianDependency dependency) {
+        apply(new Resolution.Change(Resolution.Kind.DEPENDS, type, dependency));
+    }
+
+    private void putVersionedPackage(DebianDependency pkg, Dependency dependency) {
+        apply(new Resolution.Change(Resolution.Kind.VERSIONED, pkg, dependency));
+    }
+
+    /**
+     * Records the directory of the Maven repository where the dependency is searched.
+     */
+    private void searchingInRepository(Dependency dependency) {
+        Resolution resolution = currentResolution.get();
+        if (resolution != null && mavenRepo != null) {
+            resolution.addRepositoryDir(new File(mavenRepo, dependency.getGroupId().replace('.', '/') + "/" + dependency.getArtifactId()));
+        }
+    }
+
+    /**
+     * Returns the hash of the inputs shared by all the POMs: the options of the solver,
+     * the rules files and the list of the POMs of the project.
+     */
+    private String getInputsHash() {
+        List<File> rulesFiles = new ArrayList<File>();
+        for (RulesType type : RulesType.values()) {
+            if (type.filename != null) {
+                rulesFiles.add(new File(outputDirectory, type.filename));
+            }
+        }
+        return ResolutionGraph.hash(rulesFiles.toArray(new File[rulesFiles.size()]),
+                packageName, packageType, String.valueOf(runTests), String.valueOf(generateJavadoc),
+                String.valueOf(mavenRepo), projectPomIds.toString());
     }
 
     public void saveSubstvars() {
@@ -208,6 +366,14 @@ public class DependenciesSolver {
         }
         // Write everything to debian/substvars
         Substvars.write(outputDirectory, packageName, depVars);
+
+        // Keep the answers of dpkg for the next run
+        scanner.saveCache();
+
+        // Keep the dependencies resolved for the next run, with the rules files saved
+        if (resolutionGraph != null) {
+            resolutionGraph.save(getInputsHash());
+        }
     }
 
     public void setBaseDir(File baseDir) {
@@ -226,16 +392,29 @@ public class DependenciesSolver {
         pomTransformer.getListOfPOMs().setBaseDir(baseDir);
     }
 
-    private Repository getRepository() {
+    private LazyRepository getRepository() {
         if (repository == null && mavenRepo != null) {
-            repository = new Repository(mavenRepo);
-            repository.scan();
+            // the POMs are read on demand, no scan is needed
+            repository = new LazyRepository(mavenRepo);
         }
         return repository;
     }
 
+    /**
+     * Reads again the POMs modified in the repository since they were read.
+     */
+    private void rescanRepository() {
+        if (getRepository() == null) {
+            return;
+        }
+        System.out.println("Rescanning " + mavenRepo + "...");
+        repository = getRepository().refresh();
+        pomTransformer.setRepository(repository);
+    }
+
     public void solveDependencies() {
         pomTransformer.setRepository(getRepository());
+        loadProjectPlugins();
         pomTransformer.usePluginVersionsFromRepository();
 
         IOUtil.mkDirIfNotExists(outputDirectory);
@@ -271,8 +450,13 @@ public class DependenciesSolver {
             });
         }
 
-        for (ToResolve tr : toResolve) {
-            tr.resolve();
+        if (interactive) {
+            searchMissingPackages(toResolve);
+            for (ToResolve tr : toResolve) {
+                tr.resolve();
+            }
+        } else {
+            resolveNonInteractive();
         }
 
         if (!issues.isEmpty()) {
@@ -284,6 +468,162 @@ public class DependenciesSolver {
         }
     }
 
+    /**
+     * Resolves the dependencies of the POMs without asking questions. The POMs whose inputs
+     * didn't change since the previous run reuse the dependencies saved in the resolution graph,
+     * the other POMs are resolved with several threads. The changes made by each POM are applied
+     * in the same order as in a serial run to keep the same results: resolving a POM doesn't
+     * depend on the other POMs since no dependency is ignored without asking the user.
+     */
+    private void resolveNonInteractive() {
+        ResolutionGraph graph = getResolutionGraph();
+        graph.checkInputs(getInputsHash());
+
+        Map<ToResolve, String> hashes = new HashMap<ToResolve, String>();
+        Map<ToResolve, Resolution> previousResolutions = new HashMap<ToResolve, Resolution>();
+        Map<ToResolve, Future<Resolution>> newResolutions = new HashMap<ToResolve, Future<Resolution>>();
+        List<ToResolve> unresolved = new ArrayList<ToResolve>();
+        for (ToResolve tr : toResolve) {
+            hashes.put(tr, tr.getInputsHash());
+            Resolution previous = graph.get(tr.getKey(), hashes.get(tr));
+            if (previous != null) {
+                previousResolutions.put(tr, previous);
+            } else {
+                unresolved.add(tr);
+            }
+        }
+        searchMissingPackages(unresolved);
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+        try {
+            for (final ToResolve tr : unresolved) {
+                newResolutions.put(tr, executor.submit(new Callable<Resolution>() {
+                    public Resolution call() {
+                        return tr.resolveDeferred();
+                    }
+                }));
+            }
+            if (!previousResolutions.isEmpty()) {
+                System.out.println("Reusing " + previousResolutions.size() + " of " + toResolve.size()
+                        + " lists of dependencies resolved during the previous run");
+            }
+
+            for (ToResolve tr : toResolve) {
+                Resolution resolution = previousResolutions.get(tr);
+                if (resolution == null) {
+                    try {
+                        resolution = newResolutions.get(tr).get();
+                    } catch (ExecutionException e) {
+                        // Keep applying the other POMs, this one will be resolved again on the next run
+                        log.log(Level.SEVERE, "Cannot resolve the dependencies in " + tr.sourcePom + ": " + e.getCause().getMessage(), e.getCause());
+                        resolution = new Resolution();
+                        resolution.add(new Resolution.Change(Resolution.Kind.ISSUE,
+                                "Cannot resolve the dependencies in " + IOUtil.relativePath(baseDir, tr.sourcePom) + ": " + e.getCause().getMessage()));
+                        resolution.setFailed(true);
+                    }
+                }
+                for (Resolution.Change change : resolution.getChanges()) {
+                    applyNow(change);
+                }
+                if (!resolution.isFailed()) {
+                    graph.put(tr.getKey(), hashes.get(tr), resolution);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Reads the POMs of the plugins declared by the POMs of the project. The repository
+     * is read on demand, the versions of the plugins installed must be known before
+     * transforming the POMs of the project.
+     */
+    private void loadProjectPlugins() {
+        if (getRepository() == null) {
+            return;
+        }
+        List<File> poms = new ArrayList<File>();
+        for (String pom : pomTransformer.getListOfPOMs().getPOMs()) {
+            poms.add(new File(baseDir, pom));
+        }
+        if (poms.isEmpty()) {
+            poms.add(new File(baseDir, "pom.xml"));
+            poms.add(new File(baseDir, "debian/pom.xml"));
+        }
+
+        POMReader reader = new POMReader();
+        Set<Dependency> plugins = new LinkedHashSet<Dependency>();
+        while (!poms.isEmpty()) {
+            File pomFile = poms.remove(0);
+            if (!pomFile.exists()) {
+                continue;
+            }
+            try {
+                POMInfo pom = reader.readPom(pomFile);
+                plugins.addAll(pom.getDependencies().get(DependencyType.PLUGINS));
+                plugins.addAll(pom.getDependencies().get(DependencyType.PLUGIN_MANAGEMENT));
+                plugins.addAll(pom.getDependencies().get(DependencyType.REPORTING_PLUGINS));
+                if (exploreProjects) {
+                    for (String module : pom.getModules()) {
+                        poms.add(new File(pomFile.getParentFile(), module + "/pom.xml"));
+                    }
+                }
+            } catch (Exception e) {
+                // reported when the POM is resolved
+            }
+        }
+        getRepository().loadArtifacts(plugins);
+    }
+
+    /**
+     * Searches at once the packages of the dependencies absent from the Maven repository,
+     * and the versions of these packages. The answers are kept by the package scanner and
+     * reused when the dependencies are resolved, instead of running dpkg for each dependency.
+     */
+    private void searchMissingPackages(List<ToResolve> poms) {
+        if (getRepository() == null) {
+            return;
+        }
+        Set<Dependency> missing = new LinkedHashSet<Dependency>();
+        for (ToResolve tr : poms) {
+            List<Dependency> dependencies;
+            try {
+                dependencies = getPOM(tr.sourcePom).getDependencies().get(tr.listType);
+            } catch (Exception e) {
+                // reported when the POM is resolved
+                continue;
+            }
+            for (Dependency dependency : dependencies) {
+                if (dependency.getGroupId() != null && dependency.getArtifactId() != null
+                        && !knownProjectDependencies.containsIgnoreVersion(dependency)
+                        && !ignoredDependencies.containsIgnoreVersion(dependency)
+                        && getRepository().searchMatchingPOMsIgnoreVersion(dependency).isEmpty()) {
+                    missing.add(dependency);
+                }
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+
+        Map<Dependency, DebianDependency> packages = scanner.searchInstalledPkgsContainingPoms(missing);
+        scanner.getInstalledPackageVersions(packages.values());
+        if (interactive) {
+            missing.removeAll(packages.keySet());
+            scanner.searchInstalledPkgsContainingJars(missing);
+        }
+    }
+
+    private ResolutionGraph getResolutionGraph() {
+        if (resolutionGraph == null) {
+            resolutionGraph = new ResolutionGraph(new File(baseDir, "target/debian-resolution-graph.properties"));
+        }
+        return resolutionGraph;
+    }
+
     private void resolveDependencies(File projectPom) {
 
         if (pomTransformer.getListOfPOMs().getOrCreatePOMOptions(projectPom) != null && pomTransformer.getListOfPOMs().getOrCreatePOMOptions(projectPom).isIgnore()) {
@@ -328,6 +668,8 @@ public class DependenciesSolver {
             }
 
             knownProjectDependencies.add(pom.getThisPom());
+            projectPomIds.add(pom.getThisPom().getGroupId() + ":" + pom.getThisPom().getArtifactId() + ":"
+                    + pom.getThisPom().getType() + ":" + pom.getThisPom().getVersion());
 
             if (interactive && packageVersion == null) {
                 String question = "Enter the upstream version for the package.";
@@ -487,17 +829,13 @@ public class DependenciesSolver {
         if (info != null) {
             return info;
         }
-        File tmpDest = File.createTempFile("pom", ".tmp", baseDir);
-        tmpDest.deleteOnExit();
         POMOptions options = pomTransformer.getListOfPOMs().getOrCreatePOMOptions(projectPom);
-        boolean noParent = false;
-        boolean hasPackageVersion = false;
-        if (options != null) {
-            noParent = options.isNoParent();
-            hasPackageVersion = options.getHasPackageVersion();
-        }
+        boolean noParent = options != null && options.isNoParent();
 
-        info = pomTransformer.transformPom(projectPom, tmpDest, noParent, hasPackageVersion, false, false, null, null, true);
+        // Only the POMInfo is used, the transformed POM isn't written
+        synchronized (pomTransformer) {
+            info = pomTransformer.analyzePom(projectPom, noParent);
+        }
         pomInfoCache.put(projectPom.getAbsolutePath(), info);
         return info;
     }
@@ -508,7 +846,9 @@ public class DependenciesSolver {
             return info;
         }
 
-        info = pomTransformer.readPom(projectPom);
+        synchronized (pomTransformer) {
+            info = pomTransformer.readPom(projectPom);
+        }
         originalPomInfoCache.put(projectPom.getAbsolutePath(), info);
         return info;
     }
@@ -531,11 +871,11 @@ public class DependenciesSolver {
 
     private Dependency resolveDependency(Dependency dependency, File sourcePom, boolean buildTime, boolean mavenExtension, boolean management, boolean resolvingParent) throws DependencyNotFoundException {
 
-        if (containsDependencyIgnoreVersion(knownProjectDependencies, dependency)) {
+        if (knownProjectDependencies.containsIgnoreVersion(dependency)) {
             return dependency;
         }
 
-        if (containsDependencyIgnoreVersion(ignoredDependencies, dependency) ||
+        if (ignoredDependencies.containsIgnoreVersion(dependency) ||
                 (management && isDefaultMavenPlugin(dependency))) {
             return null;
         }
@@ -545,14 +885,15 @@ public class DependenciesSolver {
         }
 
         String sourcePomLoc = sourcePom.getName();
+        searchingInRepository(dependency);
         if (verbose) {
              System.out.println("Resolving " + dependency + (dependency.getScope() == null ? "" : " of scope " + dependency.getScope()) + "...");
         }
 
         // First let the packager mark as ignored those dependencies which should be ignored
         if (ignoreDependencyQuestion.askIgnoreUnnecessaryDependency(dependency, sourcePomLoc, runTests, generateJavadoc)) {
-            ignoredDependencies.add(dependency);
-            pomTransformer.getRulesFiles().get(IGNORE).add(new DependencyRule(dependency.getGroupId(), dependency.getArtifactId(), "*", "*"));
+            ignoreDependency(dependency);
+            addRule(IGNORE, new DependencyRule(dependency.getGroupId(), dependency.getArtifactId(), "*", "*"));
             if (verbose) {
                 System.out.println("[ignored]");
             }
@@ -567,7 +908,7 @@ public class DependenciesSolver {
                 // as this may be useful later - but never fail if the dependency is not found.
                 POMInfo pom = getRepository().searchMatchingPOM(dependency);
                 if (pom != null) {
-                    pomTransformer.getRulesFiles().get(RULES).addAll(pom.getPublishedRules());
+                    addRules(RULES, pom.getPublishedRules());
                 }
 
                 return null;
@@ -600,7 +941,7 @@ public class DependenciesSolver {
                 for(DependencyRule rule : potentialPom.getPublishedRules()) {
                     if (rule.matches(dependency) && rule.apply(dependency).equals(potentialPom.getThisPom())) {
                         pom = potentialPom;
-                        pomTransformer.getRulesFiles().get(RULES).add(rule);
+                        addRule(RULES, rule);
                     }
                 }
             }
@@ -622,7 +963,7 @@ public class DependenciesSolver {
         if (pom == null && dependency.isPlugin()) {
             List<POMInfo> matchingPoms = getRepository().searchMatchingPOMsIgnoreVersion(dependency);
             if (matchingPoms.size() > 1) {
-                issues.add(sourcePomLoc + ": More than one version matches the plugin " + dependency.getGroupId() + ":"
+                addIssue(sourcePomLoc + ": More than one version matches the plugin " + dependency.getGroupId() + ":"
                         + dependency.getArtifactId() + ":" + dependency.getVersion());
             }
             if (!matchingPoms.isEmpty()) {
@@ -665,7 +1006,7 @@ public class DependenciesSolver {
                 dependency = bundleDependency;
                 for (DependencyRule rule: pom.getPublishedRules()) {
                     if (rule.matchesAndPreservesGroupArtifactAndType(dependency)) {
-                        pomTransformer.getRulesFiles().get(RULES).add(new DependencyRule(
+                        addRule(RULES, new DependencyRule(
                             pom.getThisPom().getGroupId(),
                             pom.getThisPom().getArtifactId(),
                             "s/jar/bundle/",
@@ -688,12 +1029,12 @@ public class DependenciesSolver {
                 if(issue.isEmpty()) {
                     ignoreDependency = true;
                 } else {
-                    issues.add(issue);
+                    addIssue(issue);
                 }
             }
             if (ignoreDependency) {
-                ignoredDependencies.add(dependency);
-                pomTransformer.getRulesFiles().get(IGNORE).add(new DependencyRule(dependency.getGroupId(), dependency.getArtifactId(), "*", "*"));
+                ignoreDependency(dependency);
+                addRule(IGNORE, new DependencyRule(dependency.getGroupId(), dependency.getArtifactId(), "*", "*"));
                 if (verbose) System.out.println("[ignored]");
                 return null;
             }
@@ -722,7 +1063,7 @@ public class DependenciesSolver {
                     String newRule = new SimpleQuestion(question).ask();
                     if (!newRule.isEmpty()) {
                         DependencyRule userRule = new DependencyRule(newRule);
-                        pomTransformer.getRulesFiles().get(RULES).add(userRule);
+                        addRule(RULES, userRule);
                         System.out.println("Please suggest the maintainer of package " + pkg + " to add this rule to debian/maven.publishedRules");
                         return resolveDependency(dependency.applyRules(Arrays.asList(userRule)), sourcePom, buildTime, mavenExtension, management, false);
                     }
@@ -738,9 +1079,8 @@ public class DependenciesSolver {
                              + "Please enter a substitution rule of the form s/groupId/newGroupId/ s/artifactId/newArtifactId/ jar s/version/newVersion/ here,"
                              + "or press <Enter> to give up").ask();
                         } else {
-                            pomTransformer.getRulesFiles().get(RULES).add(userRule);
-                            System.out.println("Rescanning /usr/share/maven-repo...");
-                            pomTransformer.getRepository().scan();
+                            addRule(RULES, userRule);
+                            rescanRepository();
                             return resolveDependency(dependency.applyRules(Arrays.asList(userRule)), sourcePom, buildTime, mavenExtension, management, false);
                         }
                     }
@@ -748,8 +1088,7 @@ public class DependenciesSolver {
             }
 
             if (interactive && new YesNoQuestion("Try again to resolve the dependency?", true).ask()) {
-                System.out.println("Rescanning /usr/share/maven-repo...");
-                pomTransformer.getRepository().scan();
+                rescanRepository();
                 // Clear caches
                 scanner = scanner.newInstanceWithFreshCaches();
                 return resolveDependency(dependency, sourcePom, buildTime, mavenExtension, management, false);
@@ -763,9 +1102,9 @@ public class DependenciesSolver {
         // Handle the case of Maven plugins built and used in a multi-module build:
         // they need to be added to maven.cleanIgnoreRules to avoid errors during
         // a mvn clean
-        if (dependency.isPlugin() && containsDependencyIgnoreVersion(projectPoms, dependency)) {
+        if (dependency.isPlugin() && projectPoms.containsIgnoreVersion(dependency)) {
             String ruleDef = dependency.getGroupId() + " " + dependency.getArtifactId() + " maven-plugin *";
-            pomTransformer.getRulesFiles().get(CLEAN).add(new DependencyRule(ruleDef));
+            addRule(CLEAN, new DependencyRule(ruleDef));
         }
 
         // Discover the library to import for the dependency
@@ -785,32 +1124,32 @@ public class DependenciesSolver {
             if (!management) {
                 if (buildTime) {
                     if ("test".equals(dependency.getScope())) {
-                        debianDeps.add(TEST, libraryWithVersionConstraint);
+                        addDebianDependency(TEST, libraryWithVersionConstraint);
                     } else if (dependency.isPlugin()) {
                         if (!packageType.equals("ant")) {
-                            debianDeps.add(COMPILE, libraryWithVersionConstraint);
+                            addDebianDependency(COMPILE, libraryWithVersionConstraint);
                         }
                     } else if (mavenExtension) {
                         if (!packageType.equals("ant")) {
-                            debianDeps.add(COMPILE, libraryWithVersionConstraint);
+                            addDebianDependency(COMPILE, libraryWithVersionConstraint);
                         }
                     } else {
-                        debianDeps.add(COMPILE, libraryWithVersionConstraint);
+                        addDebianDependency(COMPILE, libraryWithVersionConstraint);
                     }
                 } else {
                     if ("test".equals(dependency.getScope())) {
-                        debianDeps.add(TEST, libraryWithVersionConstraint);
+                        addDebianDependency(TEST, libraryWithVersionConstraint);
                     } else if (dependency.isOptional()) {
-                        debianDeps.add(OPTIONAL, libraryWithVersionConstraint);
+                        addDebianDependency(OPTIONAL, libraryWithVersionConstraint);
                     } else if (!"provided".equals(dependency.getScope())) {
-                        debianDeps.add(RUNTIME, libraryWithVersionConstraint);
+                        addDebianDependency(RUNTIME, libraryWithVersionConstraint);
                     }
                 }
             }
-            versionedPackagesAndDependencies.put(libraryWithVersionConstraint, dependency);
+            putVersionedPackage(libraryWithVersionConstraint, dependency);
         }
 
-        pomTransformer.getRulesFiles().get(RULES).addAll(pom.getPublishedRules());
+        addRules(RULES, pom.getPublishedRules());
 
         if (verbose) {
             System.out.println("Dependency " + dependency + " found in package " + pkg);
@@ -837,7 +1176,7 @@ public class DependenciesSolver {
         }
         if (pkg == null) {
             Dependency dependency = pom.getThisPom();
-            issues.add(sourcePomLoc + ": Dependency is missing the Debian properties in its POM: " + dependency.getGroupId() + ":"
+            addIssue(sourcePomLoc + ": Dependency is missing the Debian properties in its POM: " + dependency.getGroupId() + ":"
                     + dependency.getArtifactId() + ":" + dependency.getVersion());
             File pomFile = new File(mavenRepo, dependency.getGroupId().replace(".", "/") + "/" + dependency.getArtifactId() + "/" + dependency.getVersion() + "/" + dependency.getArtifactId() + "-" + dependency.getVersion() + ".pom");
             pkg = scanner.searchPkg(pomFile);
@@ -845,15 +1184,6 @@ public class DependenciesSolver {
         return pkg;
     }
 
-    private boolean containsDependencyIgnoreVersion(Collection<Dependency> dependencies, Dependency dependency) {
-        for (Dependency ignoredDependency : dependencies) {
-            if (ignoredDependency.equalsIgnoreVersion(dependency)) {
-                return true;
-            }
-        }
-        return false;
-    }
-
     public static void main(String[] args) {
         if (args.length == 0 || "-h".equals(args[0]) || "--help".equals(args[0])) {
             System.out.println("Purpose: Solve the dependencies in the POM(s).");
@@ -872,6 +1202,8 @@ public class DependenciesSolver {
             System.out.println("  --generate-javadoc: generate Javadoc");
             System.out.println("  --non-interactive: non interactive session");
             System.out.println("  --offline: offline mode for Debian build compatibility");
+            System.out.println("  --dpkg-index: index the dpkg database once instead of running dpkg --search");
+            System.out.println("    for each file");
             System.out.println("  -m<repo root>--maven-repo=<repo root>: location of the Maven repository,");
             System.out.println("    used to force the versions of the Maven plugins used in the current");
             System.out.println("    POM file with the versions found in the repository");
@@ -891,6 +1223,7 @@ public class DependenciesSolver {
         boolean generateJavadoc = false;
         boolean interactive = true;
         boolean offline = false;
+        boolean useDpkgIndex = false;
 
         // Parse parameters
         int i = inc(-1, args);
@@ -914,6 +1247,8 @@ public class DependenciesSolver {
                 interactive = false;
             } else if (arg.equals("--offline")) {
                 offline = true;
+            } else if (arg.equals("--dpkg-index")) {
+                useDpkgIndex = true;
             } else if (arg.startsWith("-m")) {
                 mavenRepo = new File(arg.substring(2));
             } else if (arg.startsWith("--maven-repo=")) {
@@ -929,7 +1264,12 @@ public class DependenciesSolver {
         }
 
         File outputDirectory = new File(baseDirectory, "debian");
-        DependenciesSolver solver = new DependenciesSolver(outputDirectory, new PackageScanner(offline), interactive);
+        PackageScanner scanner = new PackageScanner(offline, useDpkgIndex);
+        if (!offline) {
+            // Debian builds run offline and must not write outside of the build directory
+            scanner.setCache(new PackageScannerCache(PackageScannerCache.getDefaultCacheFile()));
+        }
+        DependenciesSolver solver = new DependenciesSolver(outputDirectory, scanner, interactive);
         solver.generateJavadoc = generateJavadoc;
         solver.runTests = runTests;
         solver.exploreProjects = exploreProjects;
@@ -962,6 +1302,7 @@ public class DependenciesSolver {
         solver.pomTransformer.getListOfPOMs().save();
         solver.pomTransformer.getRulesFiles().save(outputDirectory);
         solver.saveSubstvars();
+        IOUtil.shutdown();
 
         if (!solver.issues.isEmpty()) {
             System.err.println("Some problems were found in this project, exiting...");
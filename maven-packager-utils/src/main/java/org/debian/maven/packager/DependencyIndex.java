@@ -0,0 +1,79 @@
+/*
+ * Copyright 2014 Debian Java Maintainers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.debian.maven.packager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.debian.maven.repo.Dependency;
+
+/**
+ * Collection of dependencies indexed by groupId and artifactId, to check quickly
+ * if it contains a dependency regardless of its version.
+ * <p>
+ * The dependencies sharing the same groupId and artifactId are compared with
+ * {@link Dependency#equalsIgnoreVersion(Dependency)}, the index gives the same
+ * answers as a linear scan of the collection.
+ */
+public class DependencyIndex {
+
+    private final Map<String, List<Dependency>> dependencies = new HashMap<String, List<Dependency>>();
+
+    public DependencyIndex() {
+    }
+
+    public DependencyIndex(Collection<Dependency> dependencies) {
+        addAll(dependencies);
+    }
+
+    private static String key(Dependency dependency) {
+        return dependency.getGroupId() + ":" + dependency.getArtifactId();
+    }
+
+    public synchronized void add(Dependency dependency) {
+        String key = key(dependency);
+        List<Dependency> sameArtifact = dependencies.get(key);
+        if (sameArtifact == null) {
+            sameArtifact = new ArrayList<Dependency>(1);
+            dependencies.put(key, sameArtifact);
+        }
+        sameArtifact.add(dependency);
+    }
+
+    public synchronized void addAll(Collection<Dependency> dependencies) {
+        for (Dependency dependency : dependencies) {
+            add(dependency);
+        }
+    }
+
+    /**
+     * Returns true if the index contains a dependency equal to the specified one, ignoring the version.
+     */
+    public synchronized boolean containsIgnoreVersion(Dependency dependency) {
+        List<Dependency> sameArtifact = dependencies.get(key(dependency));
+        if (sameArtifact != null) {
+            for (Dependency candidate : sameArtifact) {
+                if (candidate.equalsIgnoreVersion(dependency)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
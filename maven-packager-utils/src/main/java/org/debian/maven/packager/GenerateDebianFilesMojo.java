@@ -44,6 +44,7 @@ import org.debian.maven.packager.interaction.MultilineQuestion;
 import org.debian.maven.packager.interaction.SimpleQuestion;
 import org.debian.maven.packager.util.LicensesScanner;
 import org.debian.maven.packager.util.PackageScanner;
+import org.debian.maven.packager.util.PackageScannerCache;
 import org.debian.maven.repo.ListOfPOMs;
 import org.debian.maven.repo.POMOptions;
 
@@ -137,6 +138,8 @@ public class GenerateDebianFilesMojo extends AbstractMojo {
     private LicensesScanner licensesScanner = new LicensesScanner();
 
     public void execute() throws MojoExecutionException {
+        scanner.setCache(new PackageScannerCache(PackageScannerCache.getDefaultCacheFile()));
+
         File f = outputDirectory;
         if (!f.exists()) {
             f.mkdirs();
@@ -305,6 +308,7 @@ public class GenerateDebianFilesMojo extends AbstractMojo {
                         testJars.addAll(scanner.listSharedJars(library));
                     }
                     context.put("testJars", testJars);
+                    scanner.saveCache();
                 }
             } else {
                 System.err.println("Cannot find file " + substvarsFile);
@@ -0,0 +1,263 @@
+/*
+ * Copyright 2014 Debian Java Maintainers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.debian.maven.packager;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.debian.maven.packager.util.IOUtil;
+import org.debian.maven.repo.Dependency;
+import org.debian.maven.repo.POMInfo;
+import org.debian.maven.repo.POMReader;
+import org.debian.maven.repo.Repository;
+
+/**
+ * View of the Maven repository which reads the POMs only when they are needed.
+ * <p>
+ * The POMs of a groupId/artifactId are read the first time a dependency on this
+ * artifact is searched, or when they are loaded explicitly with {@link #loadArtifacts(Collection)}.
+ * The POMs read are registered in the {@link Repository} as with a full scan, the methods
+ * inherited see the same POMs. A scan only reads again the directories modified since
+ * they were read.
+ * <p>
+ * If the directory of a dependency doesn't exist, the dependency may still be provided
+ * under another groupId by the published rules of another POM: the artifacts with the same
+ * artifactId are then read. The names of the directories are indexed the first time,
+ * without reading any POM. A dependency renamed to another artifactId is only found
+ * if the POM publishing the rule has already been read.
+ */
+public class LazyRepository extends Repository {
+
+    private final File baseDir;
+    private final POMReader pomReader = new POMReader();
+
+    /** The groupId/artifactId directories read, with their modification time */
+    private final Map<File, Long> loadedDirs = new HashMap<File, Long>();
+    /** The POMs read from each groupId/artifactId directory */
+    private final Map<File, Set<File>> pomsByDir = new HashMap<File, Set<File>>();
+    /** The POMs registered by the caller, such as the POMs of the project */
+    private final Map<File, List<POMInfo>> registeredPoms = new LinkedHashMap<File, List<POMInfo>>();
+    /** The directories of the repository by name, indexed when a dependency is missing */
+    private Map<String, List<File>> dirsByName;
+    /** Tells if some POMs read have been deleted since */
+    private boolean stale;
+
+    public LazyRepository(File baseDir) {
+        super(baseDir);
+        this.baseDir = baseDir;
+    }
+
+    /**
+     * Reads again the directories modified since they were read. The POMs deleted
+     * in the meantime can't be unregistered, {@link #refresh()} returns a view without them.
+     */
+    @Override
+    public synchronized void scan() {
+        for (Map.Entry<File, Long> loadedDir : new ArrayList<Map.Entry<File, Long>>(loadedDirs.entrySet())) {
+            if (loadedDir.getValue() != IOUtil.lastModifiedDir(loadedDir.getKey())) {
+                load(loadedDir.getKey());
+            }
+        }
+    }
+
+    /**
+     * Reads again the directories modified since they were read, and returns a new view
+     * of the repository if some POMs have been deleted. The POMs registered by the caller
+     * are registered in the new view.
+     */
+    public synchronized LazyRepository refresh() {
+        scan();
+        if (!stale) {
+            return this;
+        }
+        LazyRepository repository = new LazyRepository(baseDir);
+        for (Map.Entry<File, List<POMInfo>> registered : registeredPoms.entrySet()) {
+            for (POMInfo pom : registered.getValue()) {
+                repository.registerPom(registered.getKey(), pom);
+            }
+        }
+        return repository;
+    }
+
+    @Override
+    public synchronized POMInfo getSuperPOM() {
+        return super.getSuperPOM();
+    }
+
+    @Override
+    public synchronized POMInfo searchMatchingPOM(Dependency dependency) {
+        loadArtifact(dependency.getGroupId(), dependency.getArtifactId());
+        return super.searchMatchingPOM(dependency);
+    }
+
+    @Override
+    public synchronized List<POMInfo> searchMatchingPOMsIgnoreVersion(Dependency dependency) {
+        loadArtifact(dependency.getGroupId(), dependency.getArtifactId());
+        return super.searchMatchingPOMsIgnoreVersion(dependency);
+    }
+
+    @Override
+    public synchronized void registerPom(File file, POMInfo pomInfo) {
+        List<POMInfo> poms = registeredPoms.get(file);
+        if (poms == null) {
+            poms = new ArrayList<POMInfo>();
+            registeredPoms.put(file, poms);
+        }
+        poms.add(pomInfo);
+        super.registerPom(file, pomInfo);
+    }
+
+    /**
+     * Reads the POMs of the artifacts if they haven't been read yet.
+     */
+    public synchronized void loadArtifacts(Collection<Dependency> dependencies) {
+        for (Dependency dependency : dependencies) {
+            loadArtifact(dependency.getGroupId(), dependency.getArtifactId());
+        }
+    }
+
+    /**
+     * Returns the number of groupId/artifactId directories read.
+     */
+    public synchronized int getLoadedArtifactCount() {
+        return loadedDirs.size();
+    }
+
+    /**
+     * Returns the POM files read from the repository or registered by the caller.
+     */
+    synchronized Set<File> getLoadedPoms() {
+        Set<File> poms = new HashSet<File>(registeredPoms.keySet());
+        for (Set<File> dirPoms : pomsByDir.values()) {
+            poms.addAll(dirPoms);
+        }
+        return poms;
+    }
+
+    /**
+     * Reads the POMs of the artifact if they haven't been read yet.
+     */
+    synchronized void loadArtifact(String groupId, String artifactId) {
+        if (groupId == null || artifactId == null) {
+            return;
+        }
+        File dir = new File(baseDir, groupId.replace('.', '/') + "/" + artifactId);
+        if (loadedDirs.containsKey(dir)) {
+            return;
+        }
+        if (dir.isDirectory()) {
+            load(dir);
+        } else {
+            // remember the missing directory to search the other groupIds only once
+            loadedDirs.put(dir, IOUtil.lastModifiedDir(dir));
+            for (File candidate : getDirsByName(artifactId)) {
+                if (!loadedDirs.containsKey(candidate)) {
+                    load(candidate);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the groupId/artifactId directories of the repository with the specified artifactId.
+     */
+    private List<File> getDirsByName(String name) {
+        if (dirsByName == null) {
+            dirsByName = new HashMap<String, List<File>>();
+            indexDirs(baseDir);
+        }
+        List<File> dirs = dirsByName.get(name);
+        return dirs != null ? dirs : new ArrayList<File>();
+    }
+
+    /**
+     * Indexes the groupId/artifactId directories by artifactId. They are recognized
+     * by their version directories containing the POMs.
+     */
+    private void indexDirs(File dir) {
+        File[] children = dir.listFiles();
+        if (children == null) {
+            return;
+        }
+        for (File child : children) {
+            if (child.isDirectory() && containsPom(child)) {
+                List<File> dirs = dirsByName.get(dir.getName());
+                if (dirs == null) {
+                    dirs = new ArrayList<File>();
+                    dirsByName.put(dir.getName(), dirs);
+                }
+                dirs.add(dir);
+                return;
+            }
+        }
+        for (File child : children) {
+            if (child.isDirectory()) {
+                indexDirs(child);
+            }
+        }
+    }
+
+    private static boolean containsPom(File versionDir) {
+        String[] files = versionDir.list();
+        if (files != null) {
+            for (String file : files) {
+                if (file.endsWith(".pom")) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reads the POMs found in the version directories of a groupId/artifactId directory.
+     */
+    private void load(File artifactDir) {
+        loadedDirs.put(artifactDir, IOUtil.lastModifiedDir(artifactDir));
+        Set<File> found = new HashSet<File>();
+        File[] versionDirs = artifactDir.listFiles();
+        if (versionDirs != null) {
+            for (File versionDir : versionDirs) {
+                File[] files = versionDir.listFiles();
+                if (files == null) {
+                    continue;
+                }
+                for (File file : files) {
+                    if (file.getName().endsWith(".pom")) {
+                        found.add(file);
+                        try {
+                            super.registerPom(file, pomReader.readPom(file));
+                        } catch (Exception e) {
+                            System.err.println("Cannot read the POM " + file + ": " + e.getMessage());
+                        }
+                    }
+                }
+            }
+        }
+
+        Set<File> previous = pomsByDir.put(artifactDir, found);
+        if (previous != null && !found.containsAll(previous)) {
+            stale = true;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2014 Debian Java Maintainers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.debian.maven.packager;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.debian.maven.repo.Dependency;
+import org.debian.maven.repo.DependencyRule;
+import org.debian.maven.repo.DependencyRuleSet;
+import org.debian.maven.repo.POMInfo;
+import org.debian.maven.repo.POMTransformer;
+
+import static org.debian.maven.repo.DependencyRuleSetFiles.RulesType.*;
+
+/**
+ * POM transformer able to compute the transformed POM in memory, for the analysis
+ * of the dependencies. The POM is parsed and the rules are applied to the POMInfo
+ * without writing the transformed XML.
+ */
+public class POMAnalyzer extends POMTransformer {
+
+    /**
+     * Returns the POM transformed with the rules, the automatic rules of the plugins
+     * and the ignore rules, as {@link #transformPom(File, File)} would return it.
+     * The options only affecting the XML written, such as keeping the versions, don't apply.
+     *
+     * @param originalPom the POM to analyze
+     * @param noParent    true if the parent of the POM is removed
+     */
+    public POMInfo analyzePom(File originalPom, boolean noParent) throws XMLStreamException, IOException {
+        POMInfo info = readPom(originalPom);
+        if (noParent) {
+            info.setParent(null);
+        }
+
+        DependencyRuleSet ignoreRules = getRulesFiles().get(IGNORE);
+        for (List<Dependency> dependencies : info.getDependencies().values()) {
+            for (Iterator<Dependency> i = dependencies.iterator(); i.hasNext();) {
+                if (!ignoreRules.findMatchingRules(i.next()).isEmpty()) {
+                    i.remove();
+                }
+            }
+        }
+
+        Set<DependencyRule> rules = new LinkedHashSet<DependencyRule>(getRulesFiles().get(RULES).getRules());
+        rules.addAll(getRulesFiles().get(AUTOMATIC).getRules());
+        return info.newPOMFromRules(rules, getRepository());
+    }
+}
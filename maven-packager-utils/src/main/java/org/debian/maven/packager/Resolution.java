@@ -0,0 +1,176 @@
+/*
+ * Copyright 2014 Debian Java Maintainers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.debian.maven.packager;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.debian.maven.repo.Dependency;
+import org.debian.maven.repo.DependencyRule;
+import org.debian.maven.repo.DependencyRuleSetFiles.RulesType;
+
+/**
+ * The outcome of the resolution of a list of dependencies of a POM: the changes
+ * to apply to the state of the {@link DependenciesSolver}, in the order they were
+ * made, and the directories of the Maven repository searched for the dependencies.
+ * <p>
+ * The changes can be converted to and from strings to save them in a {@link ResolutionGraph}.
+ */
+public class Resolution {
+
+    public static enum Kind {
+        /** An issue found in the POM: [String] */
+        ISSUE,
+        /** A dependency ignored: [Dependency] */
+        IGNORE,
+        /** A rule added to one of the rules files: [RulesType, DependencyRule] */
+        RULE,
+        /** A dependency on a Debian package: [DebianDependencies.Type, DebianDependency] */
+        DEPENDS,
+        /** A Debian package and the Maven dependency it provides: [DebianDependency, Dependency] */
+        VERSIONED
+    }
+
+    public static class Change {
+
+        private final Kind kind;
+        private final Object[] values;
+
+        public Change(Kind kind, Object... values) {
+            this.kind = kind;
+            this.values = values;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        public Object getValue(int index) {
+            return values[index];
+        }
+
+        /**
+         * Returns the change as a tab separated string.
+         */
+        public String toString() {
+            StringBuilder sb = new StringBuilder(kind.name());
+            for (Object value : values) {
+                sb.append('\t');
+                if (value instanceof Dependency) {
+                    Dependency dependency = (Dependency) value;
+                    sb.append(dependency.getGroupId()).append(':').append(dependency.getArtifactId()).append(':')
+                      .append(dependency.getType()).append(':').append(dependency.getClassifier()).append(':')
+                      .append(dependency.getVersion());
+                } else if (value instanceof DebianDependency) {
+                    DebianDependency dependency = (DebianDependency) value;
+                    sb.append(dependency.getPackageName()).append(' ').append(dependency.getMinimumVersion());
+                } else if (value instanceof Enum) {
+                    sb.append(((Enum) value).name());
+                } else {
+                    sb.append(value);
+                }
+            }
+            return sb.toString();
+        }
+
+        /**
+         * Parses a change saved with {@link #toString()}.
+         *
+         * @throws IllegalArgumentException if the change cannot be parsed
+         */
+        public static Change parse(String s) throws IllegalArgumentException {
+            int tab = s.indexOf('\t');
+            if (tab < 0) {
+                throw new IllegalArgumentException(s);
+            }
+            Kind kind = Kind.valueOf(s.substring(0, tab));
+            String value = s.substring(tab + 1);
+            String[] fields = value.split("\t", 2);
+            switch (kind) {
+                case ISSUE:
+                    return new Change(kind, value);
+                case IGNORE:
+                    return new Change(kind, parseDependency(value));
+                case RULE:
+                    return new Change(kind, RulesType.valueOf(fields[0]), new DependencyRule(fields[1]));
+                case DEPENDS:
+                    return new Change(kind, DebianDependencies.Type.valueOf(fields[0]), parseDebianDependency(fields[1]));
+                case VERSIONED:
+                    return new Change(kind, parseDebianDependency(fields[0]), parseDependency(fields[1]));
+                default:
+                    throw new IllegalArgumentException(s);
+            }
+        }
+
+        private static Dependency parseDependency(String s) {
+            String[] gatcv = s.split(":", 5);
+            if (gatcv.length != 5) {
+                throw new IllegalArgumentException("Invalid dependency: " + s);
+            }
+            return new Dependency(gatcv[0], gatcv[1], nullIfUndefined(gatcv[2]), nullIfUndefined(gatcv[4]),
+                    null, false, nullIfUndefined(gatcv[3]), null);
+        }
+
+        private static String nullIfUndefined(String s) {
+            return "null".equals(s) ? null : s;
+        }
+
+        private static DebianDependency parseDebianDependency(String s) {
+            int space = s.indexOf(' ');
+            if (space < 0) {
+                throw new IllegalArgumentException("Invalid Debian dependency: " + s);
+            }
+            return new DebianDependency(s.substring(0, space), s.substring(space + 1));
+        }
+    }
+
+    private final List<Change> changes = new ArrayList<Change>();
+    private final Set<String> repositoryDirs = new TreeSet<String>();
+    private boolean failed;
+
+    public void add(Change change) {
+        changes.add(change);
+    }
+
+    public List<Change> getChanges() {
+        return changes;
+    }
+
+    /**
+     * Records a directory of the Maven repository searched for a dependency.
+     */
+    public void addRepositoryDir(File dir) {
+        repositoryDirs.add(dir.getAbsolutePath());
+    }
+
+    public Set<String> getRepositoryDirs() {
+        return repositoryDirs;
+    }
+
+    /**
+     * Returns true if the resolution was interrupted by an error, it must not be reused.
+     */
+    public boolean isFailed() {
+        return failed;
+    }
+
+    public void setFailed(boolean failed) {
+        this.failed = failed;
+    }
+}
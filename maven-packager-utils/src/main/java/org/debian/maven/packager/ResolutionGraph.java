@@ -0,0 +1,186 @@
+/*
+ * Copyright 2014 Debian Java Maintainers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.debian.maven.packager;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import org.debian.maven.packager.util.IOUtil;
+
+/**
+ * The dependencies resolved for each POM of a project by a previous run of the
+ * {@link DependenciesSolver}, saved with the state of the inputs used to resolve them.
+ * <p>
+ * A resolution is reused only if the global inputs (the options of the solver,
+ * the rules files and the list of the project POMs), the hash of the POM and the
+ * timestamps of the directories of the Maven repository searched are unchanged.
+ */
+public class ResolutionGraph {
+
+    private static final String FORMAT_VERSION = "2";
+    private static final String INPUTS_KEY = "inputs";
+
+    private final File graphFile;
+    private final Properties previous = new Properties();
+    private final Map<String, String> hashes = new LinkedHashMap<String, String>();
+    private final Map<String, Resolution> resolutions = new LinkedHashMap<String, Resolution>();
+
+    public ResolutionGraph(File graphFile) {
+        this.graphFile = graphFile;
+        if (graphFile.exists()) {
+            try {
+                InputStream in = new FileInputStream(graphFile);
+                try {
+                    previous.load(in);
+                } finally {
+                    in.close();
+                }
+            } catch (IOException e) {
+                System.err.println("Cannot read " + graphFile + ": " + e.getMessage());
+                previous.clear();
+            }
+        }
+    }
+
+    /**
+     * Discards the previous resolutions if they were made with other global inputs.
+     */
+    public void checkInputs(String inputsHash) {
+        if (!inputsHash.equals(previous.getProperty(INPUTS_KEY))) {
+            previous.clear();
+        }
+    }
+
+    /**
+     * Returns the previous resolution of the dependencies of a POM if its inputs didn't change, null otherwise.
+     *
+     * @param key     identifies the POM and the list of dependencies resolved
+     * @param pomHash the hash of the POM and of its parents
+     */
+    public Resolution get(String key, String pomHash) {
+        if (!pomHash.equals(previous.getProperty(key + ".hash"))) {
+            return null;
+        }
+        Resolution resolution = new Resolution();
+        try {
+            for (int i = 0; previous.containsKey(key + ".repo." + i); i++) {
+                String entry = previous.getProperty(key + ".repo." + i);
+                int tab = entry.indexOf('\t');
+                File dir = new File(entry.substring(tab + 1));
+                if (!entry.substring(0, tab).equals(Long.toString(IOUtil.lastModifiedDir(dir)))) {
+                    return null;
+                }
+                resolution.addRepositoryDir(dir);
+            }
+            for (int i = 0; previous.containsKey(key + ".change." + i); i++) {
+                resolution.add(Resolution.Change.parse(previous.getProperty(key + ".change." + i)));
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Ignoring the invalid entry " + key + " in " + graphFile + ": " + e.getMessage());
+            return null;
+        }
+        return resolution;
+    }
+
+    /**
+     * Records the resolution of the dependencies of a POM, to be saved for the next run.
+     */
+    public void put(String key, String pomHash, Resolution resolution) {
+        hashes.put(key, pomHash);
+        resolutions.put(key, resolution);
+    }
+
+    /**
+     * Saves the resolutions recorded during this run with the global inputs at the end of the run.
+     */
+    public void save(String inputsHash) {
+        Properties graph = new Properties();
+        graph.setProperty(INPUTS_KEY, inputsHash);
+        for (Map.Entry<String, Resolution> entry : resolutions.entrySet()) {
+            String key = entry.getKey();
+            graph.setProperty(key + ".hash", hashes.get(key));
+            int i = 0;
+            for (String dir : entry.getValue().getRepositoryDirs()) {
+                graph.setProperty(key + ".repo." + i++, IOUtil.lastModifiedDir(new File(dir)) + "\t" + dir);
+            }
+            i = 0;
+            for (Resolution.Change change : entry.getValue().getChanges()) {
+                graph.setProperty(key + ".change." + i++, change.toString());
+            }
+        }
+
+        try {
+            IOUtil.mkDirIfNotExists(graphFile.getParentFile());
+            OutputStream out = new FileOutputStream(graphFile);
+            try {
+                graph.store(out, "Dependencies resolved by maven-debian-helper");
+            } finally {
+                out.close();
+            }
+        } catch (IOException e) {
+            System.err.println("Cannot write " + graphFile + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Hashes the content of the files and the values, a missing file is hashed as an empty file.
+     */
+    public static String hash(File[] files, String... values) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            digest.update(FORMAT_VERSION.getBytes("UTF-8"));
+            for (String value : values) {
+                digest.update((byte) 0);
+                digest.update(String.valueOf(value).getBytes("UTF-8"));
+            }
+            byte[] buffer = new byte[8192];
+            for (File file : files) {
+                digest.update((byte) 0);
+                if (!file.exists()) {
+                    continue;
+                }
+                InputStream in = new FileInputStream(file);
+                try {
+                    int read;
+                    while ((read = in.read(buffer)) > 0) {
+                        digest.update(buffer, 0, read);
+                    }
+                } finally {
+                    in.close();
+                }
+            }
+            StringBuilder sb = new StringBuilder();
+            for (byte b : digest.digest()) {
+                sb.append(Integer.toHexString((b & 0xff) | 0x100).substring(1));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        } catch (IOException e) {
+            // the inputs are unknown, never reuse the resolution
+            return "unreadable-" + System.nanoTime();
+        }
+    }
+}
@@ -0,0 +1,349 @@
+/*
+ * Copyright 2014 Debian Java Maintainers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.debian.maven.packager.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Index of the Java files available in the Debian archive, built from the
+ * <tt>Contents-*</tt> files downloaded by apt in <tt>/var/lib/apt/lists</tt>.
+ * It answers the questions asked to <tt>apt-file search</tt> for the files
+ * in /usr/share/java and /usr/share/maven-repo, without decompressing the
+ * Contents files for each lookup.
+ * <p>
+ * The Contents files are read once and the matching entries are saved,
+ * sorted by path, in a side file which is memory mapped for the lookups.
+ * The side file is rebuilt when apt updates the Contents files.
+ * <p>
+ * The format of the side file is:
+ * <pre>
+ *     int count
+ *     int offset[count]      position of each entry, relative to the first entry
+ *     entry[count]           &lt;path>\t&lt;pkg>[,&lt;pkg>...]\n encoded in UTF-8
+ * </pre>
+ */
+public class ContentsIndex {
+
+    public static final File APT_LISTS_DIR = new File("/var/lib/apt/lists");
+
+    /** The directories indexed, relative to the root as in the Contents files */
+    private static final String[] INDEXED_DIRS = {"usr/share/java/", "usr/share/maven-repo/"};
+
+    private static final String UTF8 = "UTF-8";
+
+    private final ByteBuffer buffer;
+    private final int size;
+    private final int dataStart;
+
+    private ContentsIndex(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.size = buffer.getInt(0);
+        this.dataStart = 4 + 4 * size;
+    }
+
+    /**
+     * Returns the default location of the side file, next to the cache of the {@link PackageScanner}.
+     */
+    public static File getDefaultIndexFile() {
+        return new File(PackageScannerCache.getDefaultCacheFile().getParentFile(), "contents.idx");
+    }
+
+    /**
+     * Opens the index of the Contents files of the system, building it if necessary.
+     *
+     * @return the index, or null if there is no Contents file or the index cannot be built
+     */
+    public static ContentsIndex load() {
+        return load(APT_LISTS_DIR, getDefaultIndexFile());
+    }
+
+    /**
+     * Opens the index of the Contents files found in the lists directory,
+     * building it if the side file is missing or older than the Contents files.
+     *
+     * @param listsDir  the apt lists directory, usually /var/lib/apt/lists
+     * @param indexFile the side file containing the index
+     * @return the index, or null if there is no Contents file or the index cannot be built
+     */
+    public static ContentsIndex load(File listsDir, File indexFile) {
+        File[] contentsFiles = listsDir.listFiles(new FilenameFilter() {
+            public boolean accept(File dir, String name) {
+                return name.contains("Contents-") && (name.endsWith(".gz") || name.endsWith(".lz4"));
+            }
+        });
+        if (contentsFiles == null || contentsFiles.length == 0) {
+            return null;
+        }
+
+        try {
+            if (isStale(indexFile, contentsFiles)) {
+                System.out.println("Indexing the Contents files in " + listsDir + "...");
+                build(contentsFiles, indexFile);
+            }
+            return open(indexFile);
+        } catch (IOException e) {
+            System.err.println("Cannot index the Contents files in " + listsDir + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static boolean isStale(File indexFile, File[] contentsFiles) {
+        if (!indexFile.exists()) {
+            return true;
+        }
+        for (File contentsFile : contentsFiles) {
+            if (contentsFile.lastModified() > indexFile.lastModified()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reads the Contents files and writes the entries of the indexed directories in the side file.
+     */
+    static void build(File[] contentsFiles, File indexFile) throws IOException {
+        Map<String, Set<String>> entries = new TreeMap<String, Set<String>>();
+        for (File contentsFile : contentsFiles) {
+            InputStream in = openContents(contentsFile);
+            if (in == null) {
+                continue;
+            }
+            try {
+                BufferedReader reader = new BufferedReader(new InputStreamReader(in, UTF8));
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (isIndexed(line)) {
+                        addEntry(entries, line);
+                    }
+                }
+            } finally {
+                in.close();
+            }
+        }
+
+        IOUtil.mkDirIfNotExists(indexFile.getParentFile());
+        File tmpFile = new File(indexFile.getPath() + ".tmp");
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)));
+        try {
+            ByteArrayOutputStream data = new ByteArrayOutputStream();
+            out.writeInt(entries.size());
+            for (Map.Entry<String, Set<String>> entry : entries.entrySet()) {
+                out.writeInt(data.size());
+                StringBuilder sb = new StringBuilder(entry.getKey()).append('\t');
+                for (String pkg : entry.getValue()) {
+                    if (sb.charAt(sb.length() - 1) != '\t') {
+                        sb.append(',');
+                    }
+                    sb.append(pkg);
+                }
+                sb.append('\n');
+                data.write(sb.toString().getBytes(UTF8));
+            }
+            data.writeTo(out);
+        } finally {
+            out.close();
+        }
+        if (!tmpFile.renameTo(indexFile)) {
+            tmpFile.delete();
+            throw new IOException("Cannot rename " + tmpFile + " to " + indexFile);
+        }
+    }
+
+    /**
+     * Opens a Contents file, decompressing it with gzip or with the lz4 command.
+     *
+     * @return the uncompressed content, or null if the file cannot be decompressed
+     */
+    private static InputStream openContents(File contentsFile) throws IOException {
+        if (contentsFile.getName().endsWith(".gz")) {
+            return new GZIPInputStream(new BufferedInputStream(new FileInputStream(contentsFile)));
+        }
+        // There is no lz4 decoder in the JDK, use the command line tool if available
+        if (!new File("/usr/bin/lz4").exists()) {
+            System.err.println("/usr/bin/lz4 not found. Cannot read " + contentsFile);
+            return null;
+        }
+        final Process process = new ProcessBuilder("lz4", "-dc", contentsFile.getAbsolutePath()).start();
+        process.getErrorStream().close();
+        return new BufferedInputStream(process.getInputStream()) {
+            @Override
+            public void close() throws IOException {
+                super.close();
+                process.destroy();
+            }
+        };
+    }
+
+    private static boolean isIndexed(String line) {
+        for (String dir : INDEXED_DIRS) {
+            if (line.startsWith(dir)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Parses a line of the form <tt>&lt;path> &lt;section>/&lt;pkg>[,&lt;section>/&lt;pkg>...]</tt>
+     */
+    static void addEntry(Map<String, Set<String>> entries, String line) {
+        int separator = Math.max(line.lastIndexOf(' '), line.lastIndexOf('\t'));
+        if (separator <= 0) {
+            return;
+        }
+        String path = "/" + line.substring(0, separator).trim();
+        Set<String> packages = entries.get(path);
+        if (packages == null) {
+            packages = new TreeSet<String>();
+            entries.put(path, packages);
+        }
+        for (String location : line.substring(separator + 1).split(",")) {
+            packages.add(location.substring(location.lastIndexOf('/') + 1));
+        }
+    }
+
+    /**
+     * Maps the side file in memory.
+     */
+    static ContentsIndex open(File indexFile) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(indexFile, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new ContentsIndex(buffer);
+        } finally {
+            // the mapping remains valid after the file is closed
+            file.close();
+        }
+    }
+
+    /**
+     * Returns the number of paths in the index.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns true if the file is in one of the directories indexed.
+     */
+    public boolean covers(File file) {
+        return isIndexed(file.getAbsolutePath().substring(1));
+    }
+
+    /**
+     * Returns the packages of the archive containing the specified file.
+     */
+    public Set<String> searchFile(File file) {
+        Set<String> result = new TreeSet<String>();
+        String path = file.getAbsolutePath();
+        int i = lowerBound(path);
+        if (i < size && getPath(i).equals(path)) {
+            result.addAll(getPackages(i));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the packages of the archive containing a file with the specified
+     * extension below the directory.
+     */
+    public Set<String> searchFiles(File dir, String extension) {
+        Set<String> result = new TreeSet<String>();
+        String prefix = dir.getAbsolutePath() + "/";
+        for (int i = lowerBound(prefix); i < size; i++) {
+            String path = getPath(i);
+            if (!path.startsWith(prefix)) {
+                break;
+            }
+            if (path.endsWith(extension)) {
+                result.addAll(getPackages(i));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the position of the first path greater or equal to the key.
+     */
+    private int lowerBound(String key) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (getPath(mid).compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private String getPath(int i) {
+        String entry = getEntry(i);
+        return entry.substring(0, entry.indexOf('\t'));
+    }
+
+    private List<String> getPackages(int i) {
+        String entry = getEntry(i);
+        List<String> packages = new ArrayList<String>();
+        for (String pkg : entry.substring(entry.indexOf('\t') + 1).split(",")) {
+            packages.add(pkg);
+        }
+        return packages;
+    }
+
+    private String getEntry(int i) {
+        int start = dataStart + buffer.getInt(4 + 4 * i);
+        int end = start;
+        while (buffer.get(end) != '\n') {
+            end++;
+        }
+        byte[] bytes = new byte[end - start];
+        for (int j = 0; j < bytes.length; j++) {
+            bytes[j] = buffer.get(start + j);
+        }
+        try {
+            return new String(bytes, UTF8);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,292 @@
+/*
+ * Copyright 2014 Debian Java Maintainers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.debian.maven.packager.util;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * In-memory index of the files installed on the system, built once from
+ * the <tt>/var/lib/dpkg/info/*.list</tt> files. It answers the same questions
+ * as <tt>dpkg --search</tt> without forking a process for each lookup.
+ * <p>
+ * The paths are split into their directory and their name. The directories are
+ * stored once in a sorted array, and the names of the entries of each directory
+ * are stored in a contiguous sorted range of the array of names. A lookup for all
+ * the files under a directory is a range scan on the array of directories.
+ * <p>
+ * The diversions (<tt>/var/lib/dpkg/diversions</tt>) are not handled: a path is owned
+ * by the packages whose list contains it, whether it's diverted or not, and the path
+ * a file is diverted to isn't owned by any package.
+ */
+public class DpkgFileIndex {
+
+    public static final File DPKG_INFO_DIR = new File("/var/lib/dpkg/info");
+
+    private static final String LIST_SUFFIX = ".list";
+
+    /** The directories containing the installed paths, sorted */
+    private final String[] dirs;
+
+    /** The entries of the directory at the position i are in the range [dirStarts[i], dirStarts[i + 1]) */
+    private final int[] dirStarts;
+
+    /** The names of the installed paths, sorted in the range of their directory */
+    private final String[] names;
+
+    /** The index in <tt>packageNames</tt> of the package owning the path at the same position in <tt>names</tt> */
+    private final int[] owners;
+
+    private final String[] packageNames;
+
+    private DpkgFileIndex(String[] dirs, int[] dirStarts, String[] names, int[] owners, String[] packageNames) {
+        this.dirs = dirs;
+        this.dirStarts = dirStarts;
+        this.names = names;
+        this.owners = owners;
+        this.packageNames = packageNames;
+    }
+
+    /**
+     * Builds the index from the dpkg database of the system.
+     *
+     * @return the index, or null if the dpkg database cannot be read
+     */
+    public static DpkgFileIndex load() {
+        return load(DPKG_INFO_DIR);
+    }
+
+    /**
+     * Builds the index from the <tt>*.list</tt> files found in the specified directory.
+     *
+     * @param infoDir the dpkg info directory, usually /var/lib/dpkg/info
+     * @return the index, or null if the directory cannot be read
+     */
+    public static DpkgFileIndex load(File infoDir) {
+        File[] listFiles = infoDir.listFiles(new FilenameFilter() {
+            public boolean accept(File dir, String name) {
+                return name.endsWith(LIST_SUFFIX);
+            }
+        });
+        if (listFiles == null) {
+            return null;
+        }
+
+        // The entries in the order read: the directory id, the name and the package
+        Map<String, Integer> dirIds = new HashMap<String, Integer>();
+        List<String> dirList = new ArrayList<String>();
+        List<String> packageList = new ArrayList<String>();
+        Map<String, Integer> packageIds = new HashMap<String, Integer>();
+        int size = 0;
+        int[] entryDirs = new int[1024];
+        int[] entryOwners = new int[1024];
+        String[] entryNames = new String[1024];
+        for (File listFile : listFiles) {
+            String pkg = packageName(listFile.getName());
+            Integer owner = packageIds.get(pkg);
+            if (owner == null) {
+                owner = packageList.size();
+                packageIds.put(pkg, owner);
+                packageList.add(pkg);
+            }
+            try {
+                BufferedReader in = new BufferedReader(new FileReader(listFile));
+                try {
+                    String line;
+                    while ((line = in.readLine()) != null) {
+                        int slash = line.lastIndexOf('/');
+                        if (line.length() <= 1 || slash < 0) {
+                            continue;
+                        }
+                        String dir = line.substring(0, slash);
+                        Integer dirId = dirIds.get(dir);
+                        if (dirId == null) {
+                            dirId = dirList.size();
+                            dirIds.put(dir, dirId);
+                            dirList.add(dir);
+                        }
+                        if (size == entryNames.length) {
+                            entryDirs = Arrays.copyOf(entryDirs, size * 2);
+                            entryOwners = Arrays.copyOf(entryOwners, size * 2);
+                            entryNames = Arrays.copyOf(entryNames, size * 2);
+                        }
+                        entryDirs[size] = dirId;
+                        entryOwners[size] = owner;
+                        entryNames[size] = line.substring(slash + 1);
+                        size++;
+                    }
+                } finally {
+                    in.close();
+                }
+            } catch (IOException e) {
+                System.err.println("Cannot read " + listFile + ": " + e.getMessage());
+                return null;
+            }
+        }
+
+        // Sort the directories and compute the range of each directory
+        String[] dirs = dirList.toArray(new String[dirList.size()]);
+        Arrays.sort(dirs);
+        int[] rank = new int[dirs.length];
+        for (int i = 0; i < dirs.length; i++) {
+            rank[dirIds.get(dirs[i])] = i;
+        }
+        int[] dirStarts = new int[dirs.length + 1];
+        for (int i = 0; i < size; i++) {
+            dirStarts[rank[entryDirs[i]] + 1]++;
+        }
+        for (int i = 0; i < dirs.length; i++) {
+            dirStarts[i + 1] += dirStarts[i];
+        }
+
+        // Move the entries to the range of their directory, then sort each range by name
+        String[] names = new String[size];
+        int[] owners = new int[size];
+        int[] next = Arrays.copyOf(dirStarts, dirs.length);
+        for (int i = 0; i < size; i++) {
+            int position = next[rank[entryDirs[i]]]++;
+            names[position] = entryNames[i];
+            owners[position] = entryOwners[i];
+        }
+        for (int i = 0; i < dirs.length; i++) {
+            sort(names, owners, dirStarts[i], dirStarts[i + 1] - 1);
+        }
+
+        return new DpkgFileIndex(dirs, dirStarts, names, owners, packageList.toArray(new String[packageList.size()]));
+    }
+
+    /**
+     * Sorts the names in the range [low, high], the owners are moved with their name.
+     */
+    private static void sort(String[] names, int[] owners, int low, int high) {
+        while (low < high) {
+            String pivot = names[(low + high) >>> 1];
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (names[i].compareTo(pivot) < 0) {
+                    i++;
+                }
+                while (names[j].compareTo(pivot) > 0) {
+                    j--;
+                }
+                if (i <= j) {
+                    String name = names[i];
+                    names[i] = names[j];
+                    names[j] = name;
+                    int owner = owners[i];
+                    owners[i] = owners[j];
+                    owners[j] = owner;
+                    i++;
+                    j--;
+                }
+            }
+            // recurse on the smaller part to bound the depth of the stack
+            if (j - low < high - i) {
+                sort(names, owners, low, j);
+                low = i;
+            } else {
+                sort(names, owners, i, high);
+                high = j;
+            }
+        }
+    }
+
+    /**
+     * Extracts the package name from the name of a dpkg list file,
+     * e.g. libfoo-java.list or libfoo-jni:amd64.list
+     */
+    static String packageName(String listFileName) {
+        String pkg = listFileName.substring(0, listFileName.length() - LIST_SUFFIX.length());
+        int colon = pkg.indexOf(':');
+        if (colon > 0) {
+            pkg = pkg.substring(0, colon);
+        }
+        return pkg;
+    }
+
+    /**
+     * Returns the number of paths in the index.
+     */
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * Returns the packages containing the specified file,
+     * equivalent to <tt>dpkg --search /path/to/file</tt>.
+     */
+    public Set<String> searchFile(File file) {
+        Set<String> result = new TreeSet<String>();
+        String path = file.getAbsolutePath();
+        int slash = path.lastIndexOf('/');
+        int dir = Arrays.binarySearch(dirs, path.substring(0, slash));
+        if (dir < 0) {
+            return result;
+        }
+        String name = path.substring(slash + 1);
+        int end = dirStarts[dir + 1];
+        for (int i = lowerBound(names, dirStarts[dir], end, name); i < end && names[i].equals(name); i++) {
+            result.add(packageNames[owners[i]]);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the packages containing a file with the specified extension
+     * at least two levels below the directory, equivalent to
+     * <tt>dpkg --search /path/to/dir/&#42;/&#42;</tt> filtered on the extension.
+     */
+    public Set<String> searchFiles(File dir, String extension) {
+        Set<String> result = new TreeSet<String>();
+        // the files are in the subdirectories of the directory
+        String prefix = dir.getAbsolutePath() + "/";
+        for (int d = lowerBound(dirs, 0, dirs.length, prefix); d < dirs.length && dirs[d].startsWith(prefix); d++) {
+            for (int i = dirStarts[d]; i < dirStarts[d + 1]; i++) {
+                if (names[i].endsWith(extension)) {
+                    result.add(packageNames[owners[i]]);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the position of the first string greater or equal to the key in the sorted range [low, high).
+     */
+    private static int lowerBound(String[] values, int low, int high, String key) {
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (values[mid].compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
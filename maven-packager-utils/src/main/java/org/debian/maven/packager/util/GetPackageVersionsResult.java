@@ -0,0 +1,55 @@
+/*
+ * Copyright 2014 Debian Java Maintainers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.debian.maven.packager.util;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Parses the output of the <tt>dpkg --status</tt> command invoked with several
+ * packages at once and extracts the version of each package.
+ * <p>
+ * Each package is described by a paragraph starting with a <tt>Package:</tt> field,
+ * the paragraph is parsed by a {@link GetPackageVersionResult}.
+ */
+public class GetPackageVersionsResult implements OutputHandler {
+
+    private final Map<String, GetPackageVersionResult> result = new HashMap<String, GetPackageVersionResult>();
+    private GetPackageVersionResult current;
+
+    public void newLine(String line) {
+        if (line.startsWith("Package:")) {
+            current = new GetPackageVersionResult();
+            result.put(line.substring("Package:".length()).trim(), current);
+        } else if (line.length() == 0) {
+            current = null;
+        } else if (current != null) {
+            current.newLine(line);
+        }
+    }
+
+    public void failure() {
+    }
+
+    /**
+     * Returns the version of the package, or null if the package is not installed.
+     */
+    public String getVersion(String pkg) {
+        GetPackageVersionResult version = result.get(pkg);
+        return version == null ? null : version.getResult();
+    }
+
+}
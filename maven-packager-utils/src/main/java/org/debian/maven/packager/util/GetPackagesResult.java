@@ -0,0 +1,75 @@
+/*
+ * Copyright 2014 Debian Java Maintainers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.debian.maven.packager.util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Parses the output of the <tt>dpkg --search</tt> command invoked with several
+ * paths at once and extracts the packages containing each path.
+ * <p>
+ * The format expected is:
+ * <pre>
+ *     &lt;pkg>[, &lt;pkg>...]: &lt;file>
+ * </pre>
+ * The paths not found are reported by dpkg on the error stream and ignored.
+ */
+public class GetPackagesResult implements OutputHandler {
+
+    private final Map<String, Set<String>> result = new HashMap<String, Set<String>>();
+
+    public void newLine(String line) {
+        // Ignore lines such as 'dpkg-query: no path found matching pattern /xxx'
+        // or 'diversion by xxx from: /yyy'
+        if (line.startsWith("dpkg") || line.startsWith("diversion by ")) {
+            return;
+        }
+        int separator = line.indexOf(": /");
+        if (separator <= 0) {
+            return;
+        }
+        String path = line.substring(separator + 2);
+        Set<String> packages = result.get(path);
+        if (packages == null) {
+            packages = new TreeSet<String>();
+            result.put(path, packages);
+        }
+        for (String pkg : line.substring(0, separator).split(",")) {
+            pkg = pkg.trim();
+            // Remove the architecture qualifier of multi-arch packages
+            int colon = pkg.indexOf(':');
+            if (colon > 0) {
+                pkg = pkg.substring(0, colon);
+            }
+            packages.add(pkg);
+        }
+    }
+
+    public void failure() {
+    }
+
+    /**
+     * Returns the packages containing the path, or an empty set if the path wasn't found.
+     */
+    public Set<String> getPackages(String path) {
+        Set<String> packages = result.get(path);
+        return packages == null ? new TreeSet<String>() : packages;
+    }
+
+}
@@ -20,65 +20,138 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class IOUtil {
 
+    /**
+     * Default timeout of the commands in seconds, 0 to wait forever.
+     * It can be changed with the debian.process.timeout system property.
+     */
+    public static final long DEFAULT_TIMEOUT = Long.getLong("debian.process.timeout", 0);
+
+    // Threads reading the output of the commands, shared between all the commands
+    private static ExecutorService executor;
+
+    private static synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            final AtomicInteger threadCount = new AtomicInteger();
+            executor = Executors.newCachedThreadPool(new ThreadFactory() {
+
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "Process runner " + threadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        }
+        return executor;
+    }
+
+    /**
+     * Stops the threads used to run the commands. They are restarted if another command is executed.
+     */
+    public static synchronized void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+    }
+
     public static void executeProcess(final String[] cmd, final OutputHandler handler) {
+        executeProcess(cmd, handler, DEFAULT_TIMEOUT);
+    }
+
+    /**
+     * Executes the command and sends its output to the handler.
+     *
+     * @param cmd     the command and its arguments
+     * @param handler the handler receiving the lines printed by the command
+     * @param timeout the maximum time in seconds allowed for the command, 0 to wait forever
+     * @return the exit code of the command, or -1 if the command couldn't be executed or timed out
+     */
+    public static int executeProcess(final String[] cmd, final OutputHandler handler, long timeout) {
         try {
             ProcessBuilder pb = new ProcessBuilder(cmd);
             pb.redirectErrorStream(true);
-            System.out.print("> ");
+            StringBuilder cmdLine = new StringBuilder("> ");
             for (String arg : cmd) {
-                System.out.print(arg + " ");
+                cmdLine.append(arg).append(" ");
             }
-            System.out.println();
+            System.out.println(cmdLine);
             final Process process = pb.start();
             try {
-                ThreadFactory threadFactory = new ThreadFactory() {
-
-                    public Thread newThread(Runnable r) {
-                        Thread t = new Thread(r, "Run command " + cmd[0]);
-                        t.setDaemon(true);
-                        return t;
-                    }
-                };
+                Future<?> output = getExecutor().submit(new Callable<Void>() {
 
-                ExecutorService executor = Executors.newSingleThreadExecutor(threadFactory);
-                executor.execute(new Runnable() {
-
-                    public void run() {
+                    public Void call() throws IOException {
+                        BufferedReader in = new BufferedReader(new InputStreamReader(process.getInputStream()));
                         try {
-                            BufferedReader in = new BufferedReader(new BufferedReader(new InputStreamReader(process.getInputStream())));
                             String line;
                             while ((line = in.readLine()) != null) {
                                 handler.newLine(line);
                             }
+                        } finally {
                             in.close();
-                        } catch (IOException ex) {
-                            ex.printStackTrace();
                         }
+                        return null;
                     }
                 });
 
-                process.waitFor();
-                executor.awaitTermination(5, TimeUnit.SECONDS);
-                if (process.exitValue() != 0) {
+                // The output is fully read once the command has terminated
+                if (timeout > 0) {
+                    output.get(timeout, TimeUnit.SECONDS);
+                } else {
+                    output.get();
+                }
+                int exitValue = process.waitFor();
+                if (exitValue != 0) {
                     System.out.println(cmd[0] + " failed to execute successfully");
                     handler.failure();
                 }
-                process.destroy();
+                return exitValue;
+            } catch (TimeoutException ex) {
+                System.out.println(cmd[0] + " did not complete in " + timeout + "s");
+                handler.failure();
+            } catch (ExecutionException ex) {
+                ex.getCause().printStackTrace();
+                handler.failure();
             } catch (InterruptedException ex) {
                 ex.printStackTrace();
-                Thread.interrupted();
+                Thread.currentThread().interrupt();
+            } finally {
+                process.destroy();
             }
         } catch (IOException ex) {
             ex.printStackTrace();
             handler.failure();
         }
+        return -1;
+    }
+
+    /**
+     * Executes the command in the background, several independent commands can run concurrently.
+     * The handler is called from another thread.
+     *
+     * @param cmd     the command and its arguments
+     * @param handler the handler receiving the lines printed by the command
+     * @param timeout the maximum time in seconds allowed for the command, 0 to wait forever
+     * @return the future exit code of the command, -1 if the command couldn't be executed or timed out
+     */
+    public static Future<Integer> submitProcess(final String[] cmd, final OutputHandler handler, final long timeout) {
+        return getExecutor().submit(new Callable<Integer>() {
+
+            public Integer call() {
+                return executeProcess(cmd, handler, timeout);
+            }
+        });
     }
 
     public static void mkDirIfNotExists(File file) {
@@ -87,6 +160,24 @@ public class IOUtil {
         }
     }
 
+    /**
+     * Returns the most recent modification of the directory or of its sub directories,
+     * 0 if the directory doesn't exist. Files added to or removed from the sub directories
+     * change the result.
+     */
+    public static long lastModifiedDir(File dir) {
+        long lastModified = dir.lastModified();
+        File[] children = dir.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                if (child.isDirectory()) {
+                    lastModified = Math.max(lastModified, child.lastModified());
+                }
+            }
+        }
+        return lastModified;
+    }
+
     public static String relativePath(File base, File inBase) {
         return inBase.getAbsolutePath().substring(base.getAbsolutePath().length() + 1);
     }
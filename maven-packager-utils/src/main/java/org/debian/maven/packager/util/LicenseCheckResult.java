@@ -19,32 +19,32 @@ package org.debian.maven.packager.util;
 import java.util.Set;
 import java.util.TreeSet;
 
-public class LicenseCheckResult implements OutputHandler {
+/**
+ * The licenses and the copyright owners found in the source files.
+ */
+public class LicenseCheckResult {
 
     private final Set<String> licenses = new TreeSet<String>();
+    private final Set<String> unrecognizedLicenses = new TreeSet<String>();
     private final Set<String> copyrightOwners = new TreeSet<String>();
 
-    public void newLine(String line) {
-        if (line.startsWith(".") && line.indexOf(":") > 0) {
-            int col = line.lastIndexOf(":");
-            String license = line.substring(col + 1).trim();
-            if (license.contains("UNKNOWN")) {
-                return;
-            }
-            if (license.contains("*")) {
-                license = license.substring(license.lastIndexOf("*") + 1).trim();
-            }
-            licenses.add(license);
-        }
+    synchronized void add(SourceLicensesScanner.FileLicenses found) {
+        licenses.addAll(found.licenses);
+        unrecognizedLicenses.addAll(found.unrecognized);
+        copyrightOwners.addAll(found.copyrights);
     }
 
-    public void failure() {
-    }
-    
     public Set<String> getLicenses() {
         return licenses;
     }
 
+    /**
+     * Returns the licenses found but not recognized, e.g. 'GPL (unknown version)' or 'ISC'.
+     */
+    public Set<String> getUnrecognizedLicenses() {
+        return unrecognizedLicenses;
+    }
+
     public Set<String> getCopyrightOwners() {
         return copyrightOwners;
     }
@@ -0,0 +1,402 @@
+/*
+ * Copyright 2014 Debian Java Maintainers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.debian.maven.packager.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Recognizes the licenses named in a text: the name and the URL of a license declared
+ * in a POM, or the header of a source file. The phrases naming the licenses and their
+ * versions are compiled once in an Aho-Corasick automaton, the normalized text is then
+ * matched in a single pass whatever the number of licenses known.
+ * <p>
+ * A license is recognized when the name of its family (e.g. 'lesser general public license')
+ * is followed by its version. The families contained in a longer family name (e.g. 'general
+ * public license' in 'lesser general public license') are ignored. The families found without
+ * a matching license, such as a license without version or a family absent from the table,
+ * can be reported as unrecognized to let the packager name them.
+ */
+public class LicenseRecognizer {
+
+    /**
+     * The licenses recognized: SPDX identifier, short name in debian/copyright, family
+     * and version. A license without version matches any version of the family.
+     */
+    private static final String[][] LICENSES = {
+        {"AGPL-3.0",     "AGPL-3",       "agpl",     "3"},
+        {"Apache-1.0",   "Apache-1.0",   "apache",   "1"},
+        {"Apache-1.1",   "Apache-1.1",   "apache",   "1.1"},
+        {"Apache-2.0",   "Apache-2.0",   "apache",   "2"},
+        {"Artistic-1.0", "Artistic",     "artistic", null},
+        {"BSD-3-Clause", "BSD",          "bsd",      null},
+        {"CC-BY-SA-3.0", "CC-BY-SA-3.0", "cc-by-sa", "3"},
+        {"CDDL-1.0",     "CDDL",         "cddl",     null},
+        {"EPL-1.0",      "EPL-1.0",      "epl",      "1"},
+        {"GPL-2.0",      "GPL-2",        "gpl",      "2"},
+        {"GPL-3.0",      "GPL-3",        "gpl",      "3"},
+        {"LGPL-2.0",     "LGPL-2",       "lgpl",     "2"},
+        {"LGPL-2.1",     "LGPL-2.1",     "lgpl",     "2.1"},
+        {"LGPL-3.0",     "LGPL-3",       "lgpl",     "3"},
+        {"MIT",          "MIT",          "mit",      null},
+        {"MPL-1.1",      "MPL-1.1",      "mpl",      "1.1"},
+        {"MPL-2.0",      "MPL-2.0",      "mpl",      "2"},
+    };
+
+    /** The family of the licenses, followed by the phrases naming it in the normalized text */
+    private static final String[][] FAMILIES = {
+        {"agpl",     "affero general public license"},
+        {"apache",   "apache license", "apache software license", "apache public license"},
+        {"artistic", "artistic license"},
+        {"bsd",      "bsd license", "redistribution and use in source and binary forms"},
+        {"cc-by-sa", "creativecommons org licenses by sa", "creative commons attribution sharealike",
+                     "creative commons attribution share alike"},
+        {"cddl",     "common development and distribution license"},
+        {"epl",      "eclipse public license"},
+        {"gpl",      "general public license"},
+        {"lgpl",     "lesser general public license", "library general public license"},
+        {"mit",      "mit license", "permission is hereby granted free of charge to any person obtaining a copy"},
+        {"mpl",      "mozilla public license"},
+        // the families below have no license in the table, they are reported as unrecognized
+        {"bsl",      "boost software license"},
+        {"cpl",      "common public license"},
+        {"isc",      "isc license", "permission to use copy modify and or distribute this software for any purpose with or without fee is hereby granted"},
+        {"public domain", "public domain"},
+        {"zlib",     "zlib license", "zlib libpng license", "the origin of this software must not be misrepresented"},
+    };
+
+    /**
+     * The abbreviations naming a family, they are only recognized in the licenses
+     * of the POMs as they are too ambiguous in the source files.
+     */
+    private static final String[][] ABBREVIATIONS = {
+        {"agpl",   "agpl"},
+        {"apache", "apache", "asl"},
+        {"bsd",    "bsd"},
+        {"cddl",   "cddl"},
+        {"cpl",    "cpl"},
+        {"epl",    "epl"},
+        {"gpl",    "gpl"},
+        {"isc",    "isc"},
+        {"lgpl",   "lgpl"},
+        {"mit",    "mit"},
+        {"mpl",    "mpl"},
+        {"zlib",   "zlib"},
+    };
+
+    /** The version, followed by the phrases naming it */
+    private static final String[][] VERSIONS = {
+        {"1",   "1", "1.0"},
+        {"1.1", "1.1"},
+        {"2",   "2", "2.0"},
+        {"2.1", "2.1"},
+        {"3",   "3", "3.0"},
+    };
+
+    /** The maximum distance between the name of a family and its version, in characters of the normalized text */
+    private static final int VERSION_DISTANCE = 80;
+
+    /** The characters of the normalized text: a-z, 0-9, '.' and ' ' */
+    private static final int ALPHABET = 38;
+
+    private static final LicenseRecognizer INSTANCE = new LicenseRecognizer();
+
+    private final List<Phrase> phrases = new ArrayList<Phrase>();
+
+    /** The transitions of the automaton, by state and character */
+    private int[][] transitions;
+
+    /** The phrases matched when the automaton reaches a state */
+    private Phrase[][] matches;
+
+    public static LicenseRecognizer getInstance() {
+        return INSTANCE;
+    }
+
+    LicenseRecognizer() {
+        for (String[] family : FAMILIES) {
+            for (int i = 1; i < family.length; i++) {
+                phrases.add(new Phrase(family[i], family[0], null, false));
+            }
+        }
+        for (String[] family : ABBREVIATIONS) {
+            for (int i = 1; i < family.length; i++) {
+                phrases.add(new Phrase(family[i], family[0], null, true));
+            }
+        }
+        for (String[] version : VERSIONS) {
+            for (int i = 1; i < version.length; i++) {
+                phrases.add(new Phrase(version[i], null, version[0], false));
+            }
+        }
+        compile();
+    }
+
+    /**
+     * Builds the trie of the phrases, then completes it with the transitions followed
+     * on a mismatch, computed breadth first from the failure links.
+     */
+    private void compile() {
+        List<int[]> trie = new ArrayList<int[]>();
+        List<List<Phrase>> outputs = new ArrayList<List<Phrase>>();
+        trie.add(newState());
+        outputs.add(new ArrayList<Phrase>());
+
+        for (Phrase phrase : phrases) {
+            int state = 0;
+            for (int i = 0; i < phrase.text.length(); i++) {
+                int c = index(phrase.text.charAt(i));
+                if (trie.get(state)[c] <= 0) {
+                    trie.get(state)[c] = trie.size();
+                    trie.add(newState());
+                    outputs.add(new ArrayList<Phrase>());
+                }
+                state = trie.get(state)[c];
+            }
+            outputs.get(state).add(phrase);
+        }
+
+        int[] failure = new int[trie.size()];
+        LinkedList<Integer> queue = new LinkedList<Integer>();
+        for (int c = 0; c < ALPHABET; c++) {
+            int next = trie.get(0)[c];
+            if (next > 0) {
+                failure[next] = 0;
+                queue.add(next);
+            } else {
+                trie.get(0)[c] = 0;
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.removeFirst();
+            outputs.get(state).addAll(outputs.get(failure[state]));
+            for (int c = 0; c < ALPHABET; c++) {
+                int next = trie.get(state)[c];
+                if (next > 0) {
+                    failure[next] = trie.get(failure[state])[c];
+                    queue.add(next);
+                } else {
+                    trie.get(state)[c] = trie.get(failure[state])[c];
+                }
+            }
+        }
+
+        transitions = trie.toArray(new int[trie.size()][]);
+        matches = new Phrase[trie.size()][];
+        for (int i = 0; i < matches.length; i++) {
+            matches[i] = outputs.get(i).toArray(new Phrase[outputs.get(i).size()]);
+        }
+    }
+
+    private static int[] newState() {
+        int[] state = new int[ALPHABET];
+        Arrays.fill(state, -1);
+        return state;
+    }
+
+    private static int index(char c) {
+        if (c >= 'a' && c <= 'z') {
+            return c - 'a';
+        } else if (c >= '0' && c <= '9') {
+            return 26 + c - '0';
+        } else if (c == '.') {
+            return 36;
+        }
+        return 37;
+    }
+
+    /**
+     * Adds the short names of the licenses recognized in the text.
+     *
+     * @param abbreviations true to recognize the abbreviated names, e.g. 'gpl'
+     * @return true if a license was recognized
+     */
+    public boolean recognize(String text, boolean abbreviations, Set<String> licenses) {
+        return recognize(text, abbreviations, licenses, null);
+    }
+
+    /**
+     * Adds the short names of the licenses recognized in the text, and the description
+     * of the families of licenses found without a matching license (e.g. 'GPL (unknown version)'
+     * or 'ISC').
+     *
+     * @param abbreviations true to recognize the abbreviated names, e.g. 'gpl'
+     * @param unrecognized  the set receiving the unrecognized licenses, or null to ignore them
+     * @return true if a license was recognized
+     */
+    public boolean recognize(String text, boolean abbreviations, Set<String> licenses, Set<String> unrecognized) {
+        char[] normalized = normalize(text);
+
+        List<Match> families = new ArrayList<Match>();
+        List<Match> versions = new ArrayList<Match>();
+        int state = 0;
+        for (int i = 0; i < normalized.length && normalized[i] != 0; i++) {
+            state = transitions[state][index(normalized[i])];
+            for (Phrase phrase : matches[state]) {
+                if (phrase.abbreviation && !abbreviations) {
+                    continue;
+                }
+                Match match = new Match(phrase, i - phrase.text.length() + 1, i);
+                (phrase.family != null ? families : versions).add(match);
+            }
+        }
+
+        boolean recognized = false;
+        for (Match family : families) {
+            if (isContained(family, families)) {
+                continue;
+            }
+            String version = null;
+            for (Match v : versions) {
+                if (v.start >= family.end && v.start - family.end <= VERSION_DISTANCE) {
+                    version = v.phrase.version;
+                    break;
+                }
+            }
+            boolean matched = false;
+            for (String[] license : LICENSES) {
+                if (license[2].equals(family.phrase.family) && (license[3] == null || license[3].equals(version))) {
+                    licenses.add(license[1]);
+                    matched = true;
+                }
+            }
+            if (!matched && unrecognized != null) {
+                unrecognized.add(describe(family.phrase.family, version));
+            }
+            recognized |= matched;
+        }
+        return recognized;
+    }
+
+    /**
+     * Returns the SPDX identifier of a license recognized, e.g. 'GPL-2.0' for 'GPL-2',
+     * or null if the short name isn't one of the licenses recognized.
+     *
+     * @param shortName the short name of the license in debian/copyright
+     */
+    public String getSpdxId(String shortName) {
+        for (String[] license : LICENSES) {
+            if (license[1].equals(shortName)) {
+                return license[0];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Describes a family of licenses and its version for the packager.
+     */
+    private static String describe(String family, String version) {
+        boolean versioned = false;
+        for (String[] license : LICENSES) {
+            versioned |= license[2].equals(family) && license[3] != null;
+        }
+        String name = family.toUpperCase();
+        if (version != null) {
+            return name + " (version " + version + ")";
+        }
+        return versioned ? name + " (unknown version)" : name;
+    }
+
+    /**
+     * Tells if the name of a family is a part of the name of another family.
+     */
+    private boolean isContained(Match match, List<Match> families) {
+        for (Match other : families) {
+            if (!other.phrase.family.equals(match.phrase.family) && other.start <= match.start && other.end >= match.end) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Lowercases the text, replaces the punctuation with single spaces and separates
+     * the numbers from the words ('GPLv2' becomes 'gpl 2'). The normalized text starts
+     * and ends with a space like the phrases, the phrases are thus only matched on
+     * whole words. The unused end of the array is filled with zeros.
+     */
+    static char[] normalize(String text) {
+        char[] normalized = new char[text.length() * 2 + 2];
+        int n = 0;
+        normalized[n++] = ' ';
+        for (int i = 0; i < text.length(); i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            char last = normalized[n - 1];
+            if (c >= 'a' && c <= 'z') {
+                if (last >= '0' && last <= '9') {
+                    normalized[n++] = ' ';
+                }
+                normalized[n++] = c;
+            } else if (c >= '0' && c <= '9') {
+                if (last >= 'a' && last <= 'z') {
+                    // drop the 'v' of 'v2.1'
+                    if (last == 'v') {
+                        n--;
+                    }
+                    if (normalized[n - 1] != ' ') {
+                        normalized[n++] = ' ';
+                    }
+                }
+                normalized[n++] = c;
+            } else if (c == '.' && last >= '0' && last <= '9' && i + 1 < text.length() && Character.isDigit(text.charAt(i + 1))) {
+                normalized[n++] = c;
+            } else if (last != ' ') {
+                normalized[n++] = ' ';
+            }
+        }
+        if (normalized[n - 1] != ' ') {
+            normalized[n] = ' ';
+        }
+        return normalized;
+    }
+
+    /**
+     * A phrase naming a family of licenses or a version.
+     */
+    private static class Phrase {
+        final String text;
+        final String family;
+        final String version;
+        final boolean abbreviation;
+
+        Phrase(String text, String family, String version, boolean abbreviation) {
+            this.text = " " + text + " ";
+            this.family = family;
+            this.version = version;
+            this.abbreviation = abbreviation;
+        }
+    }
+
+    /**
+     * A phrase found in the normalized text, from the space before it to the space after it.
+     */
+    private static class Match {
+        final Phrase phrase;
+        final int start;
+        final int end;
+
+        Match(Phrase phrase, int start, int end) {
+            this.phrase = phrase;
+            this.start = start;
+            this.end = end;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2014 Debian Java Maintainers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.debian.maven.packager.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Properties;
+
+import org.codehaus.plexus.util.StringUtils;
+
+/**
+ * Persistent cache of the licenses and the copyright owners found by the {@link SourceLicensesScanner}
+ * in each file of the upstream sources. A file is identified by its path relative to the base directory,
+ * its size and its modification time, and by the hash of its header when only the modification time
+ * changed. The entries of the files no longer found by the last scan are dropped when the cache is saved.
+ */
+public class LicenseScanCache {
+
+    /** The path of the cache file relative to the base directory, next to the resolution graph */
+    public static final String CACHE_FILE = "target/debian-license-scan.properties";
+
+    private static final String STATE_KEY = "scanner.version";
+    private static final String FILE_PREFIX = "file.";
+
+    private final File cacheFile;
+    private final Properties loaded = new Properties();
+    private final Properties current = new Properties();
+
+    public LicenseScanCache(File cacheFile) {
+        this.cacheFile = cacheFile;
+        load();
+    }
+
+    public File getCacheFile() {
+        return cacheFile;
+    }
+
+    /**
+     * Returns a new instance of the cache reloaded from the disk.
+     */
+    public LicenseScanCache reload() {
+        return new LicenseScanCache(cacheFile);
+    }
+
+    private void load() {
+        if (!cacheFile.exists()) {
+            return;
+        }
+        Properties stored = new Properties();
+        try {
+            InputStream in = new FileInputStream(cacheFile);
+            try {
+                stored.load(in);
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            System.err.println("Cannot read the cache " + cacheFile + ": " + e.getMessage());
+            return;
+        }
+        if (SourceLicensesScanner.VERSION.equals(stored.getProperty(STATE_KEY))) {
+            loaded.putAll(stored);
+            loaded.remove(STATE_KEY);
+        }
+    }
+
+    /**
+     * Writes the cache to the disk if the files scanned are not exactly the files cached.
+     */
+    public void save() {
+        if (current.equals(loaded)) {
+            return;
+        }
+        Properties entries = new Properties();
+        entries.putAll(current);
+        entries.setProperty(STATE_KEY, SourceLicensesScanner.VERSION);
+        File tmpFile = new File(cacheFile.getPath() + ".tmp");
+        try {
+            IOUtil.mkDirIfNotExists(cacheFile.getAbsoluteFile().getParentFile());
+            OutputStream out = new FileOutputStream(tmpFile);
+            try {
+                entries.store(out, "Cache of the licenses found in the sources by maven-debian-helper");
+            } finally {
+                out.close();
+            }
+            if (!tmpFile.renameTo(cacheFile)) {
+                throw new IOException("Cannot rename " + tmpFile + " to " + cacheFile);
+            }
+            loaded.clear();
+            loaded.putAll(current);
+        } catch (IOException e) {
+            System.err.println("Cannot write the cache " + cacheFile + ": " + e.getMessage());
+            tmpFile.delete();
+        }
+    }
+
+    /**
+     * Returns the licenses found in the file if its size and modification time didn't change,
+     * or null if the file has to be read.
+     */
+    SourceLicensesScanner.FileLicenses get(String path, long size, long lastModified) {
+        Entry entry = getEntry(path);
+        if (entry == null || entry.size != size || entry.lastModified != lastModified) {
+            return null;
+        }
+        current.setProperty(FILE_PREFIX + path, entry.value);
+        return entry.found;
+    }
+
+    /**
+     * Returns the licenses found in the file if the hash of its header didn't change,
+     * or null if the header has to be scanned.
+     */
+    SourceLicensesScanner.FileLicenses get(String path, String hash) {
+        Entry entry = getEntry(path);
+        if (entry == null || !entry.hash.equals(hash)) {
+            return null;
+        }
+        return entry.found;
+    }
+
+    /**
+     * Records the licenses found in the file.
+     */
+    void put(String path, long size, long lastModified, String hash, SourceLicensesScanner.FileLicenses found) {
+        String value = size + ":" + lastModified + ":" + hash
+                + ":" + StringUtils.join(found.licenses.iterator(), ",")
+                + ":" + StringUtils.join(found.unrecognized.iterator(), ",")
+                + ":" + StringUtils.join(found.copyrights.iterator(), "\n");
+        current.setProperty(FILE_PREFIX + path, value);
+    }
+
+    private Entry getEntry(String path) {
+        String value = loaded.getProperty(FILE_PREFIX + path);
+        if (value == null) {
+            return null;
+        }
+        String[] fields = value.split(":", 6);
+        if (fields.length < 6) {
+            return null;
+        }
+        try {
+            Entry entry = new Entry();
+            entry.value = value;
+            entry.size = Long.parseLong(fields[0]);
+            entry.lastModified = Long.parseLong(fields[1]);
+            entry.hash = fields[2];
+            if (fields[3].length() > 0) {
+                entry.found.licenses.addAll(Arrays.asList(fields[3].split(",")));
+            }
+            if (fields[4].length() > 0) {
+                entry.found.unrecognized.addAll(Arrays.asList(fields[4].split(",")));
+            }
+            if (fields[5].length() > 0) {
+                entry.found.copyrights.addAll(Arrays.asList(fields[5].split("\n")));
+            }
+            return entry;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * A file of the cache: the value stored, its state and the licenses found.
+     */
+    private static class Entry {
+        String value;
+        long size;
+        long lastModified;
+        String hash;
+        final SourceLicensesScanner.FileLicenses found = new SourceLicensesScanner.FileLicenses();
+    }
+}
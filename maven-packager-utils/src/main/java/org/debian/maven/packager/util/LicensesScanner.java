@@ -19,11 +19,25 @@ package org.debian.maven.packager.util;
 import org.apache.maven.model.License;
 import org.debian.maven.packager.interaction.SimpleQuestion;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
 
 public class LicensesScanner {
+
+    /** The root directory of the upstream sources */
+    private final File baseDir;
+
+    public LicensesScanner() {
+        this(new File("."));
+    }
+
+    public LicensesScanner(File baseDir) {
+        this.baseDir = baseDir;
+    }
+
     public Set<String> discoverLicenses(List<License> projectLicenses) {
         Set<String> licenses = new TreeSet<String>();
         for (License license : projectLicenses) {
@@ -47,17 +61,24 @@ public class LicensesScanner {
 
         System.out.println();
         System.out.println("Checking licenses in the upstream sources...");
-        LicenseCheckResult licenseResult = new LicenseCheckResult();
-        IOUtil.executeProcess(new String[]{"/bin/sh", "-c", "licensecheck `find . -type f`"},
-                licenseResult);
-        for (String license : licenseResult.getLicenses()) {
-            boolean recognized = recognizeLicense(licenses, license, "");
-            if (!recognized) {
-                String s = new SimpleQuestion("License " + license + " was not recognized, " +
-                                        "please enter a license name preferably in one of:" + getAvailableLicenses()).ask();
-                if (s.length() > 0) {
-                    licenses.add(s);
-                }
+        LicenseCheckResult licenseResult;
+        try {
+            // the results of the previous runs are reused for the files that didn't change
+            LicenseScanCache cache = new LicenseScanCache(new File(baseDir, LicenseScanCache.CACHE_FILE));
+            SourceLicensesScanner scanner = new SourceLicensesScanner();
+            scanner.setCache(cache);
+            licenseResult = scanner.scan(baseDir);
+            cache.save();
+        } catch (IOException e) {
+            System.err.println("Cannot scan the licenses of the sources: " + e.getMessage());
+            licenseResult = new LicenseCheckResult();
+        }
+        licenses.addAll(licenseResult.getLicenses());
+        for (String license : licenseResult.getUnrecognizedLicenses()) {
+            String s = new SimpleQuestion("License " + license + " was not recognized, " +
+                                    "please enter a license name preferably in one of:" + getAvailableLicenses()).ask();
+            if (s.length() > 0) {
+                licenses.add(s);
             }
         }
 
@@ -77,54 +98,7 @@ public class LicensesScanner {
     }
 
     boolean recognizeLicense(Set<String> licenses, String licenseName, String licenseUrl) {
-        boolean recognized = false;
-        licenseName = licenseName.toLowerCase();
-        licenseUrl = licenseUrl.toLowerCase();
-        if (licenseName.contains("mit ") || licenseUrl.contains("mit-license")) {
-            licenses.add("MIT");
-            recognized = true;
-        } else if (licenseName.contains("bsd ") || licenseUrl.contains("bsd-license")) {
-            licenses.add("BSD");
-            recognized = true;
-        } else if (licenseName.contains("artistic ") || licenseUrl.contains("artistic-license")) {
-            licenses.add("Artistic");
-            recognized = true;
-        } else if (licenseName.contains("apache ") || licenseUrl.contains("apache")) {
-            if (licenseName.contains("2.") || licenseUrl.contains("2.")) {
-                licenses.add("Apache-2.0");
-                recognized = true;
-            } else if (licenseName.contains("1.0") || licenseUrl.contains("1.0")) {
-                licenses.add("Apache-1.0");
-                recognized = true;
-            } else if (licenseName.contains("1.1") || licenseUrl.contains("1.1")) {
-                licenses.add("Apache-1.1");
-                recognized = true;
-            }
-        } else if (licenseName.contains("lgpl ") || licenseUrl.contains("lgpl")) {
-            if (licenseName.contains("2.1") || licenseUrl.contains("2.1")) {
-                licenses.add("LGPL-2.1");
-                recognized = true;
-            } else if (licenseName.contains("2") || licenseUrl.contains("2")) {
-                licenses.add("LGPL-2");
-                recognized = true;
-            } else if (licenseName.contains("3") || licenseUrl.contains("3")) {
-                licenses.add("LGPL-2");
-                recognized = true;
-            }
-        } else if (licenseName.contains("gpl ") || licenseUrl.contains("gpl")) {
-            if (licenseName.contains("2") || licenseUrl.contains("2")) {
-                licenses.add("GPL-2");
-                recognized = true;
-            } else if (licenseName.contains("3") || licenseUrl.contains("3")) {
-                licenses.add("GPL-3");
-                recognized = true;
-            }
-
-        } else if (licenseUrl.contains("http://creativecommons.org/licenses/by-sa/3.0")) {
-            licenses.add("CC-BY-SA-3.0");
-            recognized = true;
-        }
-        return recognized;
+        return LicenseRecognizer.getInstance().recognize(licenseName + " " + licenseUrl, true, licenses);
     }
 
 }
@@ -20,73 +20,423 @@ import java.io.*;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import org.debian.maven.packager.DebianDependency;
 import org.debian.maven.repo.Dependency;
 
+/**
+ * Searches the Debian packages containing files, using dpkg and apt-file.
+ * The lookups are synchronized, a scanner can be shared between threads.
+ */
 public class PackageScanner {
 
+    // Maximum number of arguments passed to a single dpkg command
+    private static final int MAX_ARGS = 200;
+
     private final boolean offline;
+    // Search the files in an index of the dpkg database instead of running dpkg --search
+    private final boolean useFileIndex;
+    private DpkgFileIndex fileIndex;
+    // Index of the Contents files of the archive, used instead of apt-file when available
+    private ContentsIndex contentsIndex;
+    private boolean contentsIndexLoaded;
+    // Persistent cache of the dpkg queries, shared between the runs
+    private PackageScannerCache cache;
     // Keep the list of known files and their package
     private Map<File, String> filesInPackages = new HashMap<File, String>();
+    // Keep the list of files known to be absent from the installed packages
+    private Set<File> filesNotInstalled = new HashSet<File>();
+    // Keep the versions of the packages, null for the packages not installed
+    private Map<String, String> versionsOfPackages = new HashMap<String, String>();
     private Map<String, List<String>> cacheOfSharedJars = new HashMap<String, List<String>>();
+    // The dpkg executable, replaced in the tests
+    private String dpkgCommand = "dpkg";
 
     public PackageScanner(boolean offline) {
+        this(offline, false);
+    }
+
+    public PackageScanner(boolean offline, boolean useFileIndex) {
         this.offline = offline;
+        this.useFileIndex = useFileIndex;
     }
 
     public PackageScanner newInstanceWithFreshCaches() {
-        return new PackageScanner(offline);
+        PackageScanner scanner = new PackageScanner(offline, useFileIndex);
+        scanner.dpkgCommand = dpkgCommand;
+        if (cache != null) {
+            scanner.setCache(cache.reload());
+        }
+        return scanner;
+    }
+
+    /**
+     * Keeps the answers of dpkg in a persistent cache, reused until the installed packages change.
+     */
+    public void setCache(PackageScannerCache cache) {
+        this.cache = cache;
+    }
+
+    void setDpkgCommand(String dpkgCommand) {
+        this.dpkgCommand = dpkgCommand;
+    }
+
+    /**
+     * Saves the persistent cache, if any.
+     */
+    public void saveCache() {
+        if (cache != null) {
+            cache.save();
+        }
+    }
+
+    /**
+     * Returns the index of the dpkg database, or null if it's not used or cannot be loaded.
+     */
+    private DpkgFileIndex getFileIndex() {
+        if (useFileIndex && fileIndex == null) {
+            System.out.println("Indexing the files installed by dpkg...");
+            fileIndex = DpkgFileIndex.load();
+            if (fileIndex == null) {
+                System.err.println("Cannot read " + DpkgFileIndex.DPKG_INFO_DIR + ", falling back to dpkg --search");
+            }
+        }
+        return useFileIndex ? fileIndex : null;
+    }
+
+    /**
+     * Returns the index of the Contents files of the archive, or null if there is no Contents file.
+     */
+    private ContentsIndex getContentsIndex() {
+        if (!contentsIndexLoaded) {
+            contentsIndex = ContentsIndex.load();
+            contentsIndexLoaded = true;
+        }
+        return contentsIndex;
+    }
+
+    /**
+     * Searches the installed package containing a file with the specified extension
+     * in a sub directory of dir, using the persistent cache, the dpkg index or dpkg itself.
+     * The directory is recorded as not installed only if dpkg ran to completion.
+     */
+    private String searchInstalledPkg(File dir, String extension, File cacheId) {
+        if (filesNotInstalled.contains(cacheId)) {
+            return null;
+        }
+        if (cache != null && cache.getPackage(cacheId) != null) {
+            String pkg = cache.getPackage(cacheId);
+            return pkg.isEmpty() ? null : pkg;
+        }
+
+        Set<String> packages;
+        DpkgFileIndex index = getFileIndex();
+        if (index != null) {
+            packages = index.searchFiles(dir, extension);
+        } else {
+            GetPackageContainingPatternResult packageResult = new GetPackageContainingPatternResult(extension);
+            if (IOUtil.executeProcess(new String[]{dpkgCommand, "--search", dir.getAbsolutePath() + "/*/*"}, packageResult, IOUtil.DEFAULT_TIMEOUT) == -1) {
+                // dpkg failed or timed out, the directory isn't known to be missing
+                return null;
+            }
+            packages = packageResult.getPackages();
+        }
+
+        String pkg = packages.isEmpty() ? null : packages.iterator().next();
+        recordPackage(cacheId, pkg);
+        return pkg;
+    }
+
+    /**
+     * Searches the installed package containing the file, using the persistent cache,
+     * the dpkg index or dpkg itself. The file is recorded as not installed only if dpkg
+     * ran to completion.
+     */
+    private String searchInstalledPkg(File fileToSearch) {
+        if (filesNotInstalled.contains(fileToSearch)) {
+            return null;
+        }
+        if (cache != null && cache.getPackage(fileToSearch) != null) {
+            String pkg = cache.getPackage(fileToSearch);
+            return pkg.isEmpty() ? null : pkg;
+        }
+
+        Set<String> packages;
+        DpkgFileIndex index = getFileIndex();
+        if (index != null) {
+            packages = index.searchFile(fileToSearch);
+        } else {
+            GetPackageResult packageResult = new GetPackageResult();
+            if (IOUtil.executeProcess(new String[]{dpkgCommand, "--search", fileToSearch.getAbsolutePath()}, packageResult, IOUtil.DEFAULT_TIMEOUT) == -1) {
+                // dpkg failed or timed out, the file isn't known to be missing
+                return null;
+            }
+            packages = packageResult.getResult();
+        }
+
+        String pkg = packages.isEmpty() ? null : packages.iterator().next();
+        recordPackage(fileToSearch, pkg);
+        return pkg;
+    }
+
+    /**
+     * Records the installed package containing the file, or the absence of the file
+     * from the installed packages if pkg is null.
+     */
+    private void recordPackage(File file, String pkg) {
+        if (pkg != null) {
+            filesInPackages.put(file, pkg);
+        } else {
+            filesNotInstalled.add(file);
+        }
+        if (cache != null) {
+            cache.putPackage(file, pkg);
+        }
+    }
+
+    /**
+     * Searches the installed packages containing the files, using the persistent cache,
+     * the dpkg index or a single dpkg command for all the files not known yet.
+     * The files not installed are absent from the map returned. The files of a batch
+     * for which dpkg failed or timed out are not recorded and are searched again one by one.
+     */
+    private Map<File, String> searchInstalledPkgs(Collection<File> filesToSearch) {
+        Map<File, String> result = new HashMap<File, String>();
+        List<File> unknownFiles = new ArrayList<File>();
+        DpkgFileIndex index = getFileIndex();
+        for (File file : new LinkedHashSet<File>(filesToSearch)) {
+            if (filesNotInstalled.contains(file)) {
+                // already searched, not installed
+            } else if (filesInPackages.containsKey(file)) {
+                result.put(file, filesInPackages.get(file));
+            } else if (index != null || (cache != null && cache.getPackage(file) != null)) {
+                String pkg = searchInstalledPkg(file);
+                if (pkg != null) {
+                    result.put(file, pkg);
+                }
+            } else {
+                unknownFiles.add(file);
+            }
+        }
+
+        // The batches are independent, run them concurrently
+        Map<List<File>, GetPackagesResult> batches = new LinkedHashMap<List<File>, GetPackagesResult>();
+        Map<List<File>, Future<Integer>> processes = new HashMap<List<File>, Future<Integer>>();
+        for (int start = 0; start < unknownFiles.size(); start += MAX_ARGS) {
+            List<File> batch = unknownFiles.subList(start, Math.min(start + MAX_ARGS, unknownFiles.size()));
+            List<String> cmd = new ArrayList<String>();
+            cmd.add(dpkgCommand);
+            cmd.add("--search");
+            for (File file : batch) {
+                cmd.add(file.getAbsolutePath());
+            }
+            GetPackagesResult packagesResult = new GetPackagesResult();
+            batches.put(batch, packagesResult);
+            processes.put(batch, IOUtil.submitProcess(cmd.toArray(new String[cmd.size()]), packagesResult, IOUtil.DEFAULT_TIMEOUT));
+        }
+
+        for (Map.Entry<List<File>, GetPackagesResult> entry : batches.entrySet()) {
+            if (!isSuccessful(processes.get(entry.getKey()))) {
+                // dpkg failed or timed out, the files are unknown and not recorded
+                continue;
+            }
+            GetPackagesResult packagesResult = entry.getValue();
+            for (File file : entry.getKey()) {
+                Set<String> packages = packagesResult.getPackages(file.getAbsolutePath());
+                String pkg = packages.isEmpty() ? null : packages.iterator().next();
+                if (pkg != null) {
+                    result.put(file, pkg);
+                }
+                recordPackage(file, pkg);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Searches the installed packages containing a file with the specified extension
+     * in a sub directory of each directory, using the persistent cache, the dpkg index
+     * or a single dpkg command for all the directories not known yet. The directories
+     * not installed are absent from the map returned.
+     */
+    Map<File, String> searchInstalledPkgs(Collection<File> dirs, String extension) {
+        Map<File, String> result = new HashMap<File, String>();
+        List<File> unknownDirs = new ArrayList<File>();
+        DpkgFileIndex index = getFileIndex();
+        for (File dir : new LinkedHashSet<File>(dirs)) {
+            File cacheId = new File(dir, "<ANY>" + extension);
+            if (filesNotInstalled.contains(cacheId)) {
+                // already searched, not installed
+            } else if (filesInPackages.containsKey(cacheId)) {
+                result.put(dir, filesInPackages.get(cacheId));
+            } else if (index != null || (cache != null && cache.getPackage(cacheId) != null)) {
+                String pkg = searchInstalledPkg(dir, extension, cacheId);
+                if (pkg != null) {
+                    result.put(dir, pkg);
+                }
+            } else {
+                unknownDirs.add(dir);
+            }
+        }
+
+        // The batches are independent, run them concurrently
+        Map<List<File>, GetPackageContainingPatternResult> batches = new LinkedHashMap<List<File>, GetPackageContainingPatternResult>();
+        Map<List<File>, Future<Integer>> processes = new HashMap<List<File>, Future<Integer>>();
+        for (int start = 0; start < unknownDirs.size(); start += MAX_ARGS) {
+            List<File> batch = unknownDirs.subList(start, Math.min(start + MAX_ARGS, unknownDirs.size()));
+            List<String> cmd = new ArrayList<String>();
+            cmd.add(dpkgCommand);
+            cmd.add("--search");
+            for (File dir : batch) {
+                cmd.add(dir.getAbsolutePath() + "/*/*");
+            }
+            GetPackageContainingPatternResult packageResult = new GetPackageContainingPatternResult(extension);
+            batches.put(batch, packageResult);
+            processes.put(batch, IOUtil.submitProcess(cmd.toArray(new String[cmd.size()]), packageResult, IOUtil.DEFAULT_TIMEOUT));
+        }
+
+        for (Map.Entry<List<File>, GetPackageContainingPatternResult> entry : batches.entrySet()) {
+            if (!isSuccessful(processes.get(entry.getKey()))) {
+                // dpkg failed or timed out, the directories are unknown and not recorded
+                continue;
+            }
+            GetPackageContainingPatternResult packageResult = entry.getValue();
+            for (File dir : entry.getKey()) {
+                String prefix = dir.getAbsolutePath() + "/";
+                String pkg = null;
+                for (Map.Entry<String, String> found : packageResult.getPackagesAndFiles().entrySet()) {
+                    if (found.getKey().startsWith(prefix)) {
+                        pkg = found.getValue();
+                        break;
+                    }
+                }
+                if (pkg != null) {
+                    result.put(dir, pkg);
+                }
+                recordPackage(new File(dir, "<ANY>" + extension), pkg);
+            }
+        }
+        return result;
     }
 
-    public DebianDependency searchPkg(File dir, String extension) {
+    public synchronized DebianDependency searchPkg(File dir, String extension) {
         // lookup the cache first
         File cacheId = new File(dir, "<ANY>" + extension);        
         if (filesInPackages.containsKey(cacheId)) {
             return new DebianDependency(filesInPackages.get(cacheId));
         }
 
-        GetPackageContainingPatternResult packageResult = new GetPackageContainingPatternResult(extension);
-
-        IOUtil.executeProcess(new String[]{"dpkg", "--search", dir.getAbsolutePath() + "/*/*"}, packageResult);
-
-        if (!packageResult.getPackages().isEmpty()) {
-            String pkg = packageResult.getPackages().iterator().next();
-            filesInPackages.put(cacheId, pkg);
-            return new DebianDependency(pkg);
+        String installedPkg = searchInstalledPkg(dir, extension, cacheId);
+        if (installedPkg != null) {
+            return new DebianDependency(installedPkg);
         }
 
-        // Debian policy prevents the use of apt-file during a build
+        // Debian policy prevents the use of apt-file or of the Contents files during a build
         if (offline) {
             System.err.println("Offline mode. Give up looking for package containing " + dir);
             return null;
         }
 
-        if (!new File("/usr/bin/apt-file").exists()) {
+        Set<String> packages;
+        ContentsIndex index = getContentsIndex();
+        if (index != null && index.covers(dir)) {
+            packages = index.searchFiles(dir, extension);
+        } else if (!new File("/usr/bin/apt-file").exists()) {
             System.err.println("/usr/bin/apt-file not found. Give up looking for package containing " + dir);
             return null;
+        } else {
+            GetPackageContainingPatternResult packageResult = new GetPackageContainingPatternResult(extension);
+            IOUtil.executeProcess(new String[]{"apt-file", "search", dir.getAbsolutePath()}, packageResult);
+            packages = packageResult.getPackages();
         }
-        IOUtil.executeProcess(new String[]{"apt-file", "search", dir.getAbsolutePath()}, packageResult);
-        if (!packageResult.getPackages().isEmpty()) {
-            String pkg = packageResult.getPackages().iterator().next();
+        if (!packages.isEmpty()) {
+            String pkg = packages.iterator().next();
             filesInPackages.put(cacheId, pkg);
-            new DebianDependency(pkg);
+            return new DebianDependency(pkg);
         }
         
         return null; 
     }
 
 
-    public DebianDependency searchPkgContainingPom(Dependency dependency) {
+    private static File getPomDir(Dependency dependency) {
         // TODO shouldn't we use the mavenRepo property of DependencySolver for the mavenRepo path?
-        return searchPkg(new File("/usr/share/maven-repo/" + dependency.getGroupId().replace('.', '/')
-            + "/" + dependency.getArtifactId()) , ".pom");
+        return new File("/usr/share/maven-repo/" + dependency.getGroupId().replace('.', '/')
+            + "/" + dependency.getArtifactId());
+    }
+
+    private static File getJarFile(Dependency dependency) {
+        return new File("/usr/share/java/" + dependency.getArtifactId() + ".jar");
+    }
+
+    public DebianDependency searchPkgContainingPom(Dependency dependency) {
+        return searchPkg(getPomDir(dependency), ".pom");
     }
 
     public DebianDependency searchPkgContainingJar(Dependency dependency) {
-        return searchPkg(new File("/usr/share/java/" + dependency.getArtifactId() + ".jar"));
+        return searchPkg(getJarFile(dependency));
+    }
+
+    /**
+     * Searches at once the installed packages containing the POMs of the dependencies.
+     * The answers are kept and reused by searchPkgContainingPom, which falls back
+     * to the archive for the dependencies not installed.
+     *
+     * @return the installed package containing the POMs of each dependency found
+     */
+    public synchronized Map<Dependency, DebianDependency> searchInstalledPkgsContainingPoms(Collection<Dependency> dependencies) {
+        Map<File, Dependency> dirs = new LinkedHashMap<File, Dependency>();
+        for (Dependency dependency : dependencies) {
+            dirs.put(getPomDir(dependency), dependency);
+        }
+        return toDependencies(dirs, searchInstalledPkgs(dirs.keySet(), ".pom"));
+    }
+
+    /**
+     * Searches at once the installed packages containing the jars of the dependencies
+     * in /usr/share/java. The answers are kept and reused by searchPkgContainingJar,
+     * which falls back to the archive for the dependencies not installed.
+     *
+     * @return the installed package containing the jar of each dependency found
+     */
+    public synchronized Map<Dependency, DebianDependency> searchInstalledPkgsContainingJars(Collection<Dependency> dependencies) {
+        Map<File, Dependency> jars = new LinkedHashMap<File, Dependency>();
+        for (Dependency dependency : dependencies) {
+            jars.put(getJarFile(dependency), dependency);
+        }
+        return toDependencies(jars, searchInstalledPkgs(jars.keySet()));
+    }
+
+    private static Map<Dependency, DebianDependency> toDependencies(Map<File, Dependency> files, Map<File, String> packages) {
+        Map<Dependency, DebianDependency> result = new LinkedHashMap<Dependency, DebianDependency>();
+        for (Map.Entry<File, Dependency> file : files.entrySet()) {
+            String pkg = packages.get(file.getKey());
+            if (pkg != null) {
+                result.put(file.getValue(), new DebianDependency(pkg));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the locations where the Javadoc for the specified package may be installed,
+     * in the order of preference.
+     */
+    private List<File> getJavaDocLocations(DebianDependency dependency) {
+        List<File> locations = new ArrayList<File>();
+        locations.add(new File("/usr/share/doc/" + dependency.getPackageName() + "/api/index.html"));
+        locations.add(new File("/usr/share/doc/" + dependency.getPackageName() + "-doc/api/index.html"));
+        locations.add(new File("/usr/share/doc/" + dependency.getPackageName() + "/apidocs/index.html"));
+        locations.add(new File("/usr/share/doc/" + dependency.getPackageName() + "-doc/apidocs/index.html"));
+        return locations;
     }
 
     /**
@@ -94,48 +444,48 @@ public class PackageScanner {
      * 
      * @param dependency
      */
-    public DebianDependency searchJavaDocPkg(DebianDependency dependency) {
-        DebianDependency pkg = searchPkg(new File("/usr/share/doc/" + dependency.getPackageName() + "/api/index.html"));
-        if (pkg == null) {
-            pkg = searchPkg(new File("/usr/share/doc/" + dependency.getPackageName() + "-doc/api/index.html"));
-        }
-        if (pkg == null) {
-            pkg = searchPkg(new File("/usr/share/doc/" + dependency.getPackageName() + "/apidocs/index.html"));
-        }
-        if (pkg == null) {
-            pkg = searchPkg(new File("/usr/share/doc/" + dependency.getPackageName() + "-doc/apidocs/index.html"));
+    public synchronized DebianDependency searchJavaDocPkg(DebianDependency dependency) {
+        DebianDependency pkg = null;
+        for (File location : getJavaDocLocations(dependency)) {
+            pkg = searchPkg(location);
+            if (pkg != null) {
+                break;
+            }
         }
         return pkg;
     }
 
-    public DebianDependency searchPkg(File fileToSearch) {
+    public synchronized DebianDependency searchPkg(File fileToSearch) {
         // lookup the cache first
         if (filesInPackages.containsKey(fileToSearch)) {
             return new DebianDependency(filesInPackages.get(fileToSearch));
         }
 
-        GetPackageResult packageResult = new GetPackageResult();
-
-        IOUtil.executeProcess(new String[]{"dpkg", "--search", fileToSearch.getAbsolutePath()}, packageResult);
-        if (!packageResult.getResult().isEmpty()) {
-            String pkg = packageResult.getResult().iterator().next();
-            filesInPackages.put(fileToSearch, pkg);
-            return new DebianDependency(pkg);
+        String installedPkg = searchInstalledPkg(fileToSearch);
+        if (installedPkg != null) {
+            return new DebianDependency(installedPkg);
         }
 
-        // Debian policy prevents the use of apt-file during a build
+        // Debian policy prevents the use of apt-file or of the Contents files during a build
         if (offline) {
             System.err.println("Offline mode. Give up looking for package containing " + fileToSearch);
             return null;
         }
 
-        if (!new File("/usr/bin/apt-file").exists()) {
+        Set<String> packages;
+        ContentsIndex index = getContentsIndex();
+        if (index != null && index.covers(fileToSearch)) {
+            packages = index.searchFile(fileToSearch);
+        } else if (!new File("/usr/bin/apt-file").exists()) {
             System.err.println("/usr/bin/apt-file not found. Give up looking for package containing " + fileToSearch);
             return null;
+        } else {
+            GetPackageResult packageResult = new GetPackageResult();
+            IOUtil.executeProcess(new String[]{"apt-file", "search", fileToSearch.getAbsolutePath()}, packageResult);
+            packages = packageResult.getResult();
         }
-        IOUtil.executeProcess(new String[]{"apt-file", "search", fileToSearch.getAbsolutePath()}, packageResult);
-        if (!packageResult.getResult().isEmpty()) {
-            String pkg = packageResult.getResult().iterator().next();
+        if (!packages.isEmpty()) {
+            String pkg = packages.iterator().next();
             filesInPackages.put(fileToSearch, pkg);
             return new DebianDependency(pkg);
         }
@@ -143,11 +493,105 @@ public class PackageScanner {
         return null;
     }
 
-    public String getPackageVersion(DebianDependency pkg, boolean onlyInstalled) {
+    /**
+     * Returns the version of the installed package, using the persistent cache or dpkg.
+     */
+    private String getInstalledPackageVersion(String pkg) {
+        if (versionsOfPackages.containsKey(pkg)) {
+            return versionsOfPackages.get(pkg);
+        }
+        if (cache != null && cache.getVersion(pkg) != null) {
+            String version = cache.getVersion(pkg);
+            return version.isEmpty() ? null : version;
+        }
+
         GetPackageVersionResult packageResult = new GetPackageVersionResult();
-        IOUtil.executeProcess(new String[]{"dpkg", "--status", pkg.getPackageName()}, packageResult);
-        if (packageResult.getResult() != null) {
-            return packageResult.getResult();
+        if (IOUtil.executeProcess(new String[]{dpkgCommand, "--status", pkg}, packageResult, IOUtil.DEFAULT_TIMEOUT) == -1) {
+            // dpkg failed or timed out, the package isn't known to be missing
+            return null;
+        }
+        if (cache != null) {
+            cache.putVersion(pkg, packageResult.getResult());
+        }
+        versionsOfPackages.put(pkg, packageResult.getResult());
+        return packageResult.getResult();
+    }
+
+    /**
+     * Returns the versions of the installed packages, using the persistent cache
+     * or a single dpkg command for all the packages not known yet.
+     * The packages not installed are absent from the map returned. The packages of a batch
+     * for which dpkg failed or timed out are not recorded and are queried again one by one.
+     */
+    public synchronized Map<DebianDependency, String> getInstalledPackageVersions(Collection<DebianDependency> pkgs) {
+        List<String> unknownPkgs = new ArrayList<String>();
+        for (DebianDependency pkg : pkgs) {
+            String name = pkg.getPackageName();
+            if (!versionsOfPackages.containsKey(name) && (cache == null || cache.getVersion(name) == null)
+                    && !unknownPkgs.contains(name)) {
+                unknownPkgs.add(name);
+            }
+        }
+
+        // The batches are independent, run them concurrently
+        Map<List<String>, GetPackageVersionsResult> batches = new LinkedHashMap<List<String>, GetPackageVersionsResult>();
+        Map<List<String>, Future<Integer>> processes = new HashMap<List<String>, Future<Integer>>();
+        for (int start = 0; start < unknownPkgs.size(); start += MAX_ARGS) {
+            List<String> batch = unknownPkgs.subList(start, Math.min(start + MAX_ARGS, unknownPkgs.size()));
+            List<String> cmd = new ArrayList<String>();
+            cmd.add(dpkgCommand);
+            cmd.add("--status");
+            cmd.addAll(batch);
+            GetPackageVersionsResult versionsResult = new GetPackageVersionsResult();
+            batches.put(batch, versionsResult);
+            processes.put(batch, IOUtil.submitProcess(cmd.toArray(new String[cmd.size()]), versionsResult, IOUtil.DEFAULT_TIMEOUT));
+        }
+
+        for (Map.Entry<List<String>, GetPackageVersionsResult> entry : batches.entrySet()) {
+            if (!isSuccessful(processes.get(entry.getKey()))) {
+                // the versions are unknown, the packages must not be recorded as not installed
+                continue;
+            }
+            GetPackageVersionsResult versionsResult = entry.getValue();
+            for (String name : entry.getKey()) {
+                String version = versionsResult.getVersion(name);
+                versionsOfPackages.put(name, version);
+                if (cache != null) {
+                    cache.putVersion(name, version);
+                }
+            }
+        }
+
+        Map<DebianDependency, String> result = new LinkedHashMap<DebianDependency, String>();
+        for (DebianDependency pkg : pkgs) {
+            String version = getInstalledPackageVersion(pkg.getPackageName());
+            if (version != null) {
+                result.put(pkg, version);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Waits for the completion of a dpkg command and tells if it ran to completion.
+     * dpkg exits with the status 1 when some packages are not installed, the command
+     * only failed if it couldn't be executed or timed out.
+     */
+    private static boolean isSuccessful(Future<Integer> process) {
+        try {
+            return process.get() != -1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            e.getCause().printStackTrace();
+        }
+        return false;
+    }
+
+    public synchronized String getPackageVersion(DebianDependency pkg, boolean onlyInstalled) {
+        String installedVersion = getInstalledPackageVersion(pkg.getPackageName());
+        if (installedVersion != null) {
+            return installedVersion;
         }
         if (!onlyInstalled) {
             GetChangelogVersionResult versionResult = new GetChangelogVersionResult(pkg.getPackageName());
@@ -159,7 +603,7 @@ public class PackageScanner {
         return null;
     }
 
-    public List<String> listSharedJars(String library) {
+    public synchronized List<String> listSharedJars(String library) {
         if (cacheOfSharedJars.get(library) != null) {
             return cacheOfSharedJars.get(library);
         }
@@ -168,15 +612,33 @@ public class PackageScanner {
         if (library.indexOf("(") > 0) {
             library = library.substring(0, library.indexOf("(")).trim();
         }
+        if (cache != null && cache.getSharedJars(library) != null) {
+            jars.addAll(cache.getSharedJars(library));
+            cacheOfSharedJars.put(library, jars);
+            return jars;
+        }
         System.out.println();
         System.out.println("Looking for shared jars in package " + library + "...");
-        IOUtil.executeProcess(new String[]{"dpkg", "--listfiles", library}, new SharedJarOutputHandler(jars));
+        IOUtil.executeProcess(new String[]{dpkgCommand, "--listfiles", library}, new SharedJarOutputHandler(jars));
         cacheOfSharedJars.put(library, jars);
+        if (cache != null) {
+            cache.putSharedJars(library, jars);
+        }
         return jars;
     }
 
-    public List<DebianDependency> addDocDependencies(Collection<DebianDependency> debianDeps, Map<DebianDependency,
+    public synchronized List<DebianDependency> addDocDependencies(Collection<DebianDependency> debianDeps, Map<DebianDependency,
         Dependency> versionedPackagesAndDependencies) {
+        // Look for all the Javadoc locations at once
+        List<File> docLocations = new ArrayList<File>();
+        for (DebianDependency dependency : debianDeps) {
+            Dependency runtimeDependency = versionedPackagesAndDependencies.get(dependency);
+            if (runtimeDependency == null || !runtimeDependency.isPom()) {
+                docLocations.addAll(getJavaDocLocations(dependency));
+            }
+        }
+        searchInstalledPkgs(docLocations);
+
         List<DebianDependency> docDeps = new ArrayList<DebianDependency>();
         for (DebianDependency dependency : debianDeps) {
             Dependency runtimeDependency = versionedPackagesAndDependencies.get(dependency);
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2014 Debian Java Maintainers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.debian.maven.packager.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import org.codehaus.plexus.util.StringUtils;
+
+/**
+ * Persistent cache of the answers given by dpkg to the {@link PackageScanner}:
+ * the package containing a file, the version of an installed package and the
+ * shared jars of a package. The cache is only valid as long as the set of
+ * installed packages doesn't change, it's discarded when the dpkg status file
+ * is modified.
+ */
+public class PackageScannerCache {
+
+    public static final File DPKG_STATUS = new File("/var/lib/dpkg/status");
+
+    private static final String STATE_KEY = "dpkg.status";
+    private static final String FILE_PREFIX = "file.";
+    private static final String VERSION_PREFIX = "version.";
+    private static final String JARS_PREFIX = "jars.";
+
+    private final File cacheFile;
+    private final File dpkgStatus;
+    private final Properties entries = new Properties();
+    private boolean modified;
+
+    public PackageScannerCache(File cacheFile) {
+        this(cacheFile, DPKG_STATUS);
+    }
+
+    PackageScannerCache(File cacheFile, File dpkgStatus) {
+        this.cacheFile = cacheFile;
+        this.dpkgStatus = dpkgStatus;
+        load();
+    }
+
+    /**
+     * Returns the default location of the cache, in the XDG cache directory of the user
+     * (e.g. ~/.cache/maven-debian-helper/package-scanner.properties)
+     */
+    public static File getDefaultCacheFile() {
+        String cacheHome = System.getenv("XDG_CACHE_HOME");
+        File cacheDir;
+        if (cacheHome != null && cacheHome.length() > 0) {
+            cacheDir = new File(cacheHome);
+        } else {
+            cacheDir = new File(System.getProperty("user.home"), ".cache");
+        }
+        return new File(cacheDir, "maven-debian-helper/package-scanner.properties");
+    }
+
+    /**
+     * Returns a new instance of the cache reloaded from the disk.
+     */
+    public PackageScannerCache reload() {
+        return new PackageScannerCache(cacheFile, dpkgStatus);
+    }
+
+    private String getDpkgState() {
+        return dpkgStatus.lastModified() + ":" + dpkgStatus.length();
+    }
+
+    private void load() {
+        if (!cacheFile.exists()) {
+            return;
+        }
+        Properties stored = new Properties();
+        try {
+            InputStream in = new FileInputStream(cacheFile);
+            try {
+                stored.load(in);
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            System.err.println("Cannot read the cache " + cacheFile + ": " + e.getMessage());
+            return;
+        }
+        if (getDpkgState().equals(stored.getProperty(STATE_KEY))) {
+            entries.putAll(stored);
+        }
+    }
+
+    /**
+     * Writes the cache to the disk if new entries were added.
+     */
+    public void save() {
+        if (!modified) {
+            return;
+        }
+        entries.setProperty(STATE_KEY, getDpkgState());
+        File tmpFile = new File(cacheFile.getPath() + ".tmp");
+        try {
+            IOUtil.mkDirIfNotExists(cacheFile.getParentFile());
+            OutputStream out = new FileOutputStream(tmpFile);
+            try {
+                entries.store(out, "Cache of the dpkg queries of maven-debian-helper");
+            } finally {
+                out.close();
+            }
+            if (!tmpFile.renameTo(cacheFile)) {
+                throw new IOException("Cannot rename " + tmpFile + " to " + cacheFile);
+            }
+            modified = false;
+        } catch (IOException e) {
+            System.err.println("Cannot write the cache " + cacheFile + ": " + e.getMessage());
+            tmpFile.delete();
+        }
+    }
+
+    private void put(String key, String value) {
+        if (!value.equals(entries.getProperty(key))) {
+            entries.setProperty(key, value);
+            modified = true;
+        }
+    }
+
+    /**
+     * Returns the package containing the file, an empty string if the file
+     * is not installed, or null if the file is unknown to the cache.
+     */
+    public String getPackage(File file) {
+        return entries.getProperty(FILE_PREFIX + file.getPath());
+    }
+
+    /**
+     * Records the package containing the file, null if the file is not installed.
+     */
+    public void putPackage(File file, String pkg) {
+        put(FILE_PREFIX + file.getPath(), pkg == null ? "" : pkg);
+    }
+
+    /**
+     * Returns the version of the installed package, an empty string if the package
+     * is not installed, or null if the package is unknown to the cache.
+     */
+    public String getVersion(String pkg) {
+        return entries.getProperty(VERSION_PREFIX + pkg);
+    }
+
+    /**
+     * Records the version of the package, null if the package is not installed.
+     */
+    public void putVersion(String pkg, String version) {
+        put(VERSION_PREFIX + pkg, version == null ? "" : version);
+    }
+
+    /**
+     * Returns the shared jars installed in /usr/share/java by the package,
+     * or null if the package is unknown to the cache.
+     */
+    public List<String> getSharedJars(String pkg) {
+        String jars = entries.getProperty(JARS_PREFIX + pkg);
+        if (jars == null) {
+            return null;
+        }
+        List<String> result = new ArrayList<String>();
+        if (jars.length() > 0) {
+            result.addAll(Arrays.asList(jars.split(",")));
+        }
+        return result;
+    }
+
+    public void putSharedJars(String pkg, List<String> jars) {
+        put(JARS_PREFIX + pkg, StringUtils.join(jars.iterator(), ","));
+    }
+}
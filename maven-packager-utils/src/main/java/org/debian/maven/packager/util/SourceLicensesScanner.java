@@ -0,0 +1,246 @@
+/*
+ * Copyright 2014 Debian Java Maintainers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.debian.maven.packager.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Detects the licenses and the copyright owners declared in the headers of the source files,
+ * replacing the licensecheck tool. The tree is walked once, then the first bytes of each file
+ * are read and classified in parallel. The licenses are recognized by {@link LicenseRecognizer}
+ * and named as in debian/copyright, e.g. 'Apache-2.0' or 'LGPL-2.1'. With a {@link LicenseScanCache}
+ * only the files added or modified since the previous scan are read.
+ */
+public class SourceLicensesScanner {
+
+    /** The version of the scanner, to be increased when the licenses found in a header change */
+    static final String VERSION = "2";
+
+    /** The number of bytes read at the beginning of each file, about the 60 lines read by licensecheck */
+    static final int HEADER_SIZE = 8192;
+
+    /** The number of files classified by a single task */
+    private static final int BATCH_SIZE = 64;
+
+    private static final Set<String> IGNORED_DIRS = new HashSet<String>(Arrays.asList(".git", ".svn", ".hg", ".bzr", "CVS"));
+
+    private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+
+    private static final Pattern COPYRIGHT = Pattern.compile("^[\\W&&[^(]]*copyright\\s*(?:\\(c\\)|\\u00a9)?\\s*(.*\\d{4}.*)$",
+            Pattern.CASE_INSENSITIVE | Pattern.MULTILINE);
+
+    private LicenseScanCache cache;
+
+    public void setCache(LicenseScanCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Scans the files under the specified directory.
+     */
+    public LicenseCheckResult scan(File baseDir) throws IOException {
+        final Path root = baseDir.toPath();
+        final Path cacheFile = cache != null ? cache.getCacheFile().toPath().toAbsolutePath().normalize() : null;
+        final List<Path> files = new ArrayList<Path>();
+        final Map<Path, BasicFileAttributes> attributes = new ConcurrentHashMap<Path, BasicFileAttributes>();
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                if (!dir.equals(root) && IGNORED_DIRS.contains(dir.getFileName().toString())) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (attrs.isRegularFile() && !file.toAbsolutePath().normalize().equals(cacheFile)) {
+                    files.add(file);
+                    attributes.put(file, attrs);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                return FileVisitResult.CONTINUE;
+            }
+        });
+
+        LicenseCheckResult result = new LicenseCheckResult();
+        ForkJoinPool pool = new ForkJoinPool();
+        try {
+            pool.invoke(new ScanFiles(root, files, attributes, result));
+        } finally {
+            pool.shutdown();
+        }
+        return result;
+    }
+
+    /**
+     * Classifies a batch of files, larger batches are split in parallel tasks.
+     */
+    private class ScanFiles extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Path root;
+        private final List<Path> files;
+        private final Map<Path, BasicFileAttributes> attributes;
+        private final LicenseCheckResult result;
+
+        ScanFiles(Path root, List<Path> files, Map<Path, BasicFileAttributes> attributes, LicenseCheckResult result) {
+            this.root = root;
+            this.files = files;
+            this.attributes = attributes;
+            this.result = result;
+        }
+
+        @Override
+        protected void compute() {
+            if (files.size() > BATCH_SIZE) {
+                int middle = files.size() / 2;
+                invokeAll(new ScanFiles(root, files.subList(0, middle), attributes, result),
+                        new ScanFiles(root, files.subList(middle, files.size()), attributes, result));
+                return;
+            }
+            for (Path file : files) {
+                try {
+                    result.add(scanFile(root, file, attributes.get(file)));
+                } catch (IOException e) {
+                    System.err.println("Cannot read " + file + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the licenses and the copyright owners found in the header of a file,
+     * from the cache if the file or its header didn't change.
+     */
+    private FileLicenses scanFile(Path root, Path file, BasicFileAttributes attrs) throws IOException {
+        if (cache == null) {
+            return scanHeader(readHeader(file));
+        }
+        String path = root.relativize(file).toString().replace(File.separatorChar, '/');
+        long size = attrs.size();
+        long lastModified = attrs.lastModifiedTime().toMillis();
+        FileLicenses found = cache.get(path, size, lastModified);
+        if (found != null) {
+            return found;
+        }
+        byte[] header = readHeader(file);
+        String hash = hash(header);
+        found = cache.get(path, hash);
+        if (found == null) {
+            found = scanHeader(header);
+        }
+        cache.put(path, size, lastModified, hash, found);
+        return found;
+    }
+
+    /**
+     * Reads the beginning of a file.
+     */
+    static byte[] readHeader(Path file) throws IOException {
+        byte[] buffer = new byte[HEADER_SIZE];
+        int length = 0;
+        InputStream in = Files.newInputStream(file);
+        try {
+            int count;
+            while (length < buffer.length && (count = in.read(buffer, length, buffer.length - length)) != -1) {
+                length += count;
+            }
+        } finally {
+            in.close();
+        }
+        return length < buffer.length ? Arrays.copyOf(buffer, length) : buffer;
+    }
+
+    /**
+     * Returns the hexadecimal SHA-1 digest of the header, the only part of the file
+     * the licenses depend on.
+     */
+    static String hash(byte[] header) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        StringBuilder hash = new StringBuilder();
+        for (byte b : digest.digest(header)) {
+            hash.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hash.toString();
+    }
+
+    /**
+     * Returns the licenses and the copyright owners found in the header, nothing if the file is binary.
+     */
+    FileLicenses scanHeader(byte[] header) {
+        for (byte b : header) {
+            if (b == 0) {
+                return new FileLicenses();
+            }
+        }
+        // every byte is mapped to a character, the licenses are recognized in any ASCII compatible encoding
+        return scanHeader(new String(header, ISO_8859_1));
+    }
+
+    FileLicenses scanHeader(String header) {
+        FileLicenses found = new FileLicenses();
+        Matcher copyright = COPYRIGHT.matcher(header);
+        while (copyright.find()) {
+            found.copyrights.add(copyright.group(1).trim());
+        }
+
+        LicenseRecognizer.getInstance().recognize(header, false, found.licenses, found.unrecognized);
+        return found;
+    }
+
+    /**
+     * The licenses, the unrecognized licenses and the copyright owners found in a file.
+     */
+    static class FileLicenses {
+        final Set<String> licenses = new TreeSet<String>();
+        final Set<String> unrecognized = new TreeSet<String>();
+        final Set<String> copyrights = new TreeSet<String>();
+    }
+}
@@ -0,0 +1,35 @@
+package org.debian.maven.packager;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import org.debian.maven.repo.Dependency;
+import org.junit.Test;
+
+public class DependencyIndexTest {
+
+    @Test
+    public void testContainsIgnoreVersion() {
+        DependencyIndex index = new DependencyIndex(Arrays.asList(
+                new Dependency("commons-io", "commons-io", "jar", "1.4"),
+                new Dependency("org.apache.maven.plugins", "maven-compiler-plugin", "maven-plugin", "2.5")));
+
+        assertTrue(index.containsIgnoreVersion(new Dependency("commons-io", "commons-io", "jar", "2.4")));
+        assertTrue(index.containsIgnoreVersion(new Dependency("org.apache.maven.plugins", "maven-compiler-plugin", "maven-plugin", "3.1")));
+        assertFalse(index.containsIgnoreVersion(new Dependency("commons-io", "commons-io", "pom", "2.4")));
+        assertFalse(index.containsIgnoreVersion(new Dependency("commons-io", "commons-lang", "jar", "1.4")));
+        assertFalse(index.containsIgnoreVersion(new Dependency("org.apache.commons", "commons-io", "jar", "1.4")));
+    }
+
+    @Test
+    public void testAdd() {
+        DependencyIndex index = new DependencyIndex();
+        assertFalse(index.containsIgnoreVersion(new Dependency("commons-io", "commons-io", "jar", "1.4")));
+
+        index.add(new Dependency("commons-io", "commons-io", "jar", "1.4"));
+        index.add(new Dependency("commons-io", "commons-io", "pom", "1.4"));
+        assertTrue(index.containsIgnoreVersion(new Dependency("commons-io", "commons-io", "jar", "debian")));
+        assertTrue(index.containsIgnoreVersion(new Dependency("commons-io", "commons-io", "pom", "debian")));
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2014 Debian Java Maintainers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.debian.maven.packager;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LazyRepositoryTest {
+
+    private File repoDir = new File("target/tmp/lazy-repository");
+
+    @Before
+    public void setUp() throws Exception {
+        writePom("commons-io", "commons-io", "2.4", "jar");
+        writePom("junit", "junit", "4.11", "jar");
+        writePom("org.apache.felix", "maven-bundle-plugin", "2.3.7", "maven-plugin");
+        writePom("org.codehaus.plexus", "plexus-component-metadata", "1.5.5", "maven-plugin");
+        writePom("org.apache.maven", "maven-plugin-api", "3.0.5", "jar");
+        writePom("org.example", "example-plugin", "1.0", "jar");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(repoDir);
+    }
+
+    private File writePom(String groupId, String artifactId, String version, String packaging) throws Exception {
+        File pom = new File(repoDir, groupId.replace('.', '/') + "/" + artifactId + "/" + version + "/" + artifactId + "-" + version + ".pom");
+        FileUtils.writeStringToFile(pom, "<?xml version=\"1.0\"?>\n"
+                + "<project>\n"
+                + "  <modelVersion>4.0.0</modelVersion>\n"
+                + "  <groupId>" + groupId + "</groupId>\n"
+                + "  <artifactId>" + artifactId + "</artifactId>\n"
+                + "  <version>" + version + "</version>\n"
+                + "  <packaging>" + packaging + "</packaging>\n"
+                + "</project>\n");
+        return pom;
+    }
+
+    private File pom(String path) {
+        return new File(repoDir, path);
+    }
+
+    @Test
+    public void testNothingReadByScan() throws Exception {
+        LazyRepository repository = new LazyRepository(repoDir);
+        repository.scan();
+
+        assertEquals(0, repository.getLoadedArtifactCount());
+        assertTrue(repository.getLoadedPoms().isEmpty());
+    }
+
+    @Test
+    public void testLoadOnDemand() throws Exception {
+        LazyRepository repository = new LazyRepository(repoDir);
+
+        repository.loadArtifact("commons-io", "commons-io");
+        assertEquals(1, repository.getLoadedArtifactCount());
+        assertTrue(repository.getLoadedPoms().contains(pom("commons-io/commons-io/2.4/commons-io-2.4.pom")));
+        assertFalse(repository.getLoadedPoms().contains(pom("junit/junit/4.11/junit-4.11.pom")));
+
+        repository.loadArtifact("org.apache.felix", "maven-bundle-plugin");
+        assertEquals(2, repository.getLoadedArtifactCount());
+        assertTrue(repository.getLoadedPoms().contains(pom("org/apache/felix/maven-bundle-plugin/2.3.7/maven-bundle-plugin-2.3.7.pom")));
+        assertFalse(repository.getLoadedPoms().contains(pom("org/codehaus/plexus/plexus-component-metadata/1.5.5/plexus-component-metadata-1.5.5.pom")));
+    }
+
+    @Test
+    public void testRescanModifiedDirectories() throws Exception {
+        LazyRepository repository = new LazyRepository(repoDir);
+        repository.loadArtifact("commons-io", "commons-io");
+
+        File artifactDir = pom("commons-io/commons-io");
+        long lastModified = artifactDir.lastModified();
+        writePom("commons-io", "commons-io", "2.5", "jar");
+        artifactDir.setLastModified(lastModified + 2000);
+
+        assertSame("New view without deleted POMs", repository, repository.refresh());
+        assertTrue("New POM not loaded", repository.getLoadedPoms().contains(pom("commons-io/commons-io/2.5/commons-io-2.5.pom")));
+    }
+
+    @Test
+    public void testRefreshForgetsDeletedPoms() throws Exception {
+        LazyRepository repository = new LazyRepository(repoDir);
+        File projectPom = new File("pom.xml");
+        repository.registerPom(projectPom, null);
+        repository.loadArtifact("commons-io", "commons-io");
+
+        File artifactDir = pom("commons-io/commons-io");
+        long lastModified = artifactDir.lastModified();
+        FileUtils.deleteDirectory(new File(artifactDir, "2.4"));
+        writePom("commons-io", "commons-io", "2.5", "jar");
+        artifactDir.setLastModified(lastModified + 2000);
+
+        LazyRepository refreshed = repository.refresh();
+        assertNotSame("Deleted POM still registered", repository, refreshed);
+        assertTrue("Project POM not registered", refreshed.getLoadedPoms().contains(projectPom));
+
+        refreshed.loadArtifact("commons-io", "commons-io");
+        assertTrue(refreshed.getLoadedPoms().contains(pom("commons-io/commons-io/2.5/commons-io-2.5.pom")));
+        assertFalse(refreshed.getLoadedPoms().contains(pom("commons-io/commons-io/2.4/commons-io-2.4.pom")));
+    }
+
+    @Test
+    public void testMissingDirectory() throws Exception {
+        writePom("org.ow2.asm", "asm", "5.0", "jar");
+        LazyRepository repository = new LazyRepository(repoDir);
+
+        // asm:asm may be provided by the rules published by org.ow2.asm:asm
+        repository.loadArtifact("asm", "asm");
+        assertTrue(repository.getLoadedPoms().contains(pom("org/ow2/asm/asm/5.0/asm-5.0.pom")));
+        assertFalse("Other artifact read", repository.getLoadedPoms().contains(pom("junit/junit/4.11/junit-4.11.pom")));
+        assertEquals(2, repository.getLoadedArtifactCount());
+    }
+}
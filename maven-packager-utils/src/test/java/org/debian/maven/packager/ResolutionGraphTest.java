@@ -0,0 +1,128 @@
+package org.debian.maven.packager;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+
+import org.apache.commons.io.FileUtils;
+import org.debian.maven.repo.Dependency;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ResolutionGraphTest {
+
+    private File testDir = new File("target/tmp/resolution-graph");
+    private File graphFile = new File(testDir, "graph.properties");
+    private File repoDir = new File(testDir, "maven-repo/commons-io/commons-io");
+
+    @Before
+    public void setUp() throws Exception {
+        repoDir.mkdirs();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(testDir);
+    }
+
+    private Resolution newResolution() {
+        Resolution resolution = new Resolution();
+        resolution.addRepositoryDir(repoDir);
+        resolution.add(new Resolution.Change(Resolution.Kind.DEPENDS, DebianDependencies.Type.RUNTIME, new DebianDependency("libcommons-io-java", "1.4")));
+        resolution.add(new Resolution.Change(Resolution.Kind.ISSUE, "pom.xml: dependency is not packaged in the Maven repository for Debian: foo:bar:1.0"));
+        return resolution;
+    }
+
+    @Test
+    public void testSaveAndReuse() throws Exception {
+        ResolutionGraph graph = new ResolutionGraph(graphFile);
+        graph.put("pom.xml:DEPENDENCIES", "hash1", newResolution());
+        graph.save("inputs1");
+
+        graph = new ResolutionGraph(graphFile);
+        graph.checkInputs("inputs1");
+        Resolution resolution = graph.get("pom.xml:DEPENDENCIES", "hash1");
+        assertNotNull(resolution);
+        assertEquals(2, resolution.getChanges().size());
+        assertEquals(Resolution.Kind.DEPENDS, resolution.getChanges().get(0).getKind());
+        assertEquals(DebianDependencies.Type.RUNTIME, resolution.getChanges().get(0).getValue(0));
+        assertEquals(new DebianDependency("libcommons-io-java", "1.4"), resolution.getChanges().get(0).getValue(1));
+        assertEquals("pom.xml: dependency is not packaged in the Maven repository for Debian: foo:bar:1.0", resolution.getChanges().get(1).getValue(0));
+        assertNull(graph.get("module/pom.xml:DEPENDENCIES", "hash1"));
+    }
+
+    @Test
+    public void testPomChanged() throws Exception {
+        ResolutionGraph graph = new ResolutionGraph(graphFile);
+        graph.put("pom.xml:DEPENDENCIES", "hash1", newResolution());
+        graph.save("inputs1");
+
+        graph = new ResolutionGraph(graphFile);
+        graph.checkInputs("inputs1");
+        assertNull(graph.get("pom.xml:DEPENDENCIES", "hash2"));
+    }
+
+    @Test
+    public void testGlobalInputsChanged() throws Exception {
+        ResolutionGraph graph = new ResolutionGraph(graphFile);
+        graph.put("pom.xml:DEPENDENCIES", "hash1", newResolution());
+        graph.save("inputs1");
+
+        graph = new ResolutionGraph(graphFile);
+        graph.checkInputs("inputs2");
+        assertNull(graph.get("pom.xml:DEPENDENCIES", "hash1"));
+    }
+
+    @Test
+    public void testRepositoryChanged() throws Exception {
+        ResolutionGraph graph = new ResolutionGraph(graphFile);
+        graph.put("pom.xml:DEPENDENCIES", "hash1", newResolution());
+        graph.save("inputs1");
+
+        File newVersion = new File(repoDir, "2.4");
+        newVersion.mkdir();
+        newVersion.setLastModified(System.currentTimeMillis() + 60000);
+
+        graph = new ResolutionGraph(graphFile);
+        graph.checkInputs("inputs1");
+        assertNull(graph.get("pom.xml:DEPENDENCIES", "hash1"));
+    }
+
+    @Test
+    public void testClassifierSaved() throws Exception {
+        Dependency dependency = new Dependency("org.foo", "foo", "jar", "1.0", null, false, "tests", null);
+        Resolution resolution = new Resolution();
+        resolution.add(new Resolution.Change(Resolution.Kind.IGNORE, dependency));
+        assertEquals("IGNORE\torg.foo:foo:jar:tests:1.0", resolution.getChanges().get(0).toString());
+
+        ResolutionGraph graph = new ResolutionGraph(graphFile);
+        graph.put("pom.xml:DEPENDENCIES", "hash1", resolution);
+        graph.save("inputs1");
+
+        graph = new ResolutionGraph(graphFile);
+        graph.checkInputs("inputs1");
+        Dependency saved = (Dependency) graph.get("pom.xml:DEPENDENCIES", "hash1").getChanges().get(0).getValue(0);
+        assertEquals("org.foo", saved.getGroupId());
+        assertEquals("foo", saved.getArtifactId());
+        assertEquals("jar", saved.getType());
+        assertEquals("tests", saved.getClassifier());
+        assertEquals("1.0", saved.getVersion());
+
+        Resolution.Change change = Resolution.Change.parse("IGNORE\torg.foo:foo:jar:null:1.0");
+        assertNull(((Dependency) change.getValue(0)).getClassifier());
+        assertEquals("IGNORE\torg.foo:foo:jar:null:1.0", change.toString());
+    }
+
+    @Test
+    public void testHash() throws Exception {
+        File pom = new File(testDir, "pom.xml");
+        FileUtils.writeStringToFile(pom, "<project/>");
+        String hash = ResolutionGraph.hash(new File[] {pom}, "true");
+        assertEquals(hash, ResolutionGraph.hash(new File[] {pom}, "true"));
+        assertFalse(hash.equals(ResolutionGraph.hash(new File[] {pom}, "false")));
+
+        FileUtils.writeStringToFile(pom, "<project></project>");
+        assertFalse(hash.equals(ResolutionGraph.hash(new File[] {pom}, "true")));
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2014 Debian Java Maintainers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.debian.maven.packager.util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ContentsIndexTest {
+
+    private File listsDir = new File("target/tmp/apt-lists");
+    private File indexFile = new File("target/tmp/apt-lists-index/contents.idx");
+
+    @Before
+    public void setUp() throws Exception {
+        listsDir.mkdirs();
+        writeContents("deb.debian.org_debian_dists_sid_main_Contents-all.gz",
+                "usr/share/doc/libcommons-io-java/api/index.html              doc/libcommons-io-java-doc",
+                "usr/share/java/commons-io.jar                                java/libcommons-io-java",
+                "usr/share/maven-repo/commons-io/commons-io/2.4/commons-io-2.4.pom java/libcommons-io-java",
+                "usr/share/maven-repo/commons-io/commons-io/debian/commons-io-debian.pom java/libcommons-io-java");
+        writeContents("deb.debian.org_debian_dists_sid_contrib_Contents-amd64.gz",
+                "usr/lib/jni/libfoo.so                                        contrib/java/libfoo-jni",
+                "usr/share/java/foo.jar                                       contrib/java/libfoo-java,contrib/java/libfoo-jni");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(listsDir);
+        FileUtils.deleteDirectory(indexFile.getParentFile());
+    }
+
+    private void writeContents(String name, String... lines) throws IOException {
+        Writer out = new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(new File(listsDir, name))), "UTF-8");
+        for (String line : lines) {
+            out.write(line + "\n");
+        }
+        out.close();
+    }
+
+    @Test
+    public void testSearchFile() throws Exception {
+        ContentsIndex index = ContentsIndex.load(listsDir, indexFile);
+
+        assertTrue("Index not saved", indexFile.exists());
+        assertEquals(4, index.size());
+        assertEquals("[libcommons-io-java]", index.searchFile(new File("/usr/share/java/commons-io.jar")).toString());
+        assertEquals("[libfoo-java, libfoo-jni]", index.searchFile(new File("/usr/share/java/foo.jar")).toString());
+        assertTrue(index.searchFile(new File("/usr/share/java/azertyuiop-123.jar")).isEmpty());
+    }
+
+    @Test
+    public void testSearchFilesWithExtension() throws Exception {
+        ContentsIndex index = ContentsIndex.load(listsDir, indexFile);
+
+        assertEquals("[libcommons-io-java]", index.searchFiles(new File("/usr/share/maven-repo/commons-io/commons-io"), ".pom").toString());
+        assertTrue(index.searchFiles(new File("/usr/share/maven-repo/commons-io/commons-io"), ".jar").isEmpty());
+        assertTrue(index.searchFiles(new File("/usr/share/maven-repo/commons-io/commons"), ".pom").isEmpty());
+    }
+
+    @Test
+    public void testOnlyJavaDirectoriesAreIndexed() throws Exception {
+        ContentsIndex index = ContentsIndex.load(listsDir, indexFile);
+
+        assertTrue(index.covers(new File("/usr/share/java/foo.jar")));
+        assertFalse(index.covers(new File("/usr/lib/jni/libfoo.so")));
+        assertFalse(index.covers(new File("/usr/share/doc/libcommons-io-java/api/index.html")));
+        assertTrue(index.searchFile(new File("/usr/lib/jni/libfoo.so")).isEmpty());
+    }
+
+    @Test
+    public void testRebuildWhenContentsUpdated() throws Exception {
+        ContentsIndex.load(listsDir, indexFile);
+        indexFile.setLastModified(System.currentTimeMillis() - 60000);
+
+        writeContents("deb.debian.org_debian_dists_sid_main_Contents-all.gz",
+                "usr/share/java/commons-lang.jar                              java/libcommons-lang-java");
+
+        ContentsIndex index = ContentsIndex.load(listsDir, indexFile);
+        assertEquals("[libcommons-lang-java]", index.searchFile(new File("/usr/share/java/commons-lang.jar")).toString());
+        assertTrue(index.searchFile(new File("/usr/share/java/commons-io.jar")).isEmpty());
+    }
+
+    @Test
+    public void testLoadWithoutContents() throws Exception {
+        assertNull(ContentsIndex.load(new File(listsDir, "missing"), indexFile));
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2014 Debian Java Maintainers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.debian.maven.packager.util;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Set;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DpkgFileIndexTest {
+
+    private File infoDir = new File("target/tmp/dpkg-info");
+
+    @Before
+    public void setUp() throws Exception {
+        infoDir.mkdirs();
+        writeList("libcommons-io-java.list",
+                "/.",
+                "/usr",
+                "/usr/share",
+                "/usr/share/java",
+                "/usr/share/java/commons-io.jar",
+                "/usr/share/maven-repo/commons-io/commons-io/1.4/commons-io-1.4.pom",
+                "/usr/share/maven-repo/commons-io/commons-io/debian/commons-io-debian.pom");
+        writeList("libcommons-io-java-doc.list",
+                "/usr/share/doc/libcommons-io-java/api/index.html");
+        writeList("libfoo-jni:amd64.list",
+                "/usr/share/java",
+                "/usr/lib/jni/libfoo.so");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(infoDir);
+    }
+
+    private void writeList(String name, String... paths) throws IOException {
+        FileWriter out = new FileWriter(new File(infoDir, name));
+        for (String path : paths) {
+            out.write(path + "\n");
+        }
+        out.close();
+    }
+
+    @Test
+    public void testSearchFile() throws Exception {
+        DpkgFileIndex index = DpkgFileIndex.load(infoDir);
+
+        assertEquals("[libcommons-io-java]", index.searchFile(new File("/usr/share/java/commons-io.jar")).toString());
+        assertEquals("[libcommons-io-java-doc]", index.searchFile(new File("/usr/share/doc/libcommons-io-java/api/index.html")).toString());
+        assertEquals("[libfoo-jni]", index.searchFile(new File("/usr/lib/jni/libfoo.so")).toString());
+        assertTrue(index.searchFile(new File("/usr/share/java/azertyuiop-123.jar")).isEmpty());
+    }
+
+    @Test
+    public void testSearchSharedDirectory() throws Exception {
+        DpkgFileIndex index = DpkgFileIndex.load(infoDir);
+
+        Set<String> packages = index.searchFile(new File("/usr/share/java"));
+        assertEquals(2, packages.size());
+        assertTrue(packages.contains("libcommons-io-java"));
+        assertTrue(packages.contains("libfoo-jni"));
+    }
+
+    @Test
+    public void testSearchFilesWithExtension() throws Exception {
+        DpkgFileIndex index = DpkgFileIndex.load(infoDir);
+
+        assertEquals("[libcommons-io-java]", index.searchFiles(new File("/usr/share/maven-repo/commons-io/commons-io"), ".pom").toString());
+        assertTrue(index.searchFiles(new File("/usr/share/maven-repo/commons-io/commons-io"), ".jar").isEmpty());
+        // the files must be at least two levels below the directory
+        assertTrue(index.searchFiles(new File("/usr/share/java"), ".jar").isEmpty());
+        assertEquals("[libcommons-io-java]", index.searchFiles(new File("/usr/share"), ".jar").toString());
+        assertTrue(index.searchFiles(new File("/usr/share/maven-repo/commons-io/commons"), ".pom").isEmpty());
+    }
+
+    @Test
+    public void testUnsortedLists() throws Exception {
+        String[] paths = new String[200];
+        for (int i = 0; i < paths.length; i++) {
+            // a directory sorted before its sibling with a longer name, and names in reverse order
+            paths[i] = (i % 2 == 0 ? "/usr/share/java/" : "/usr/share/java-x/") + "lib" + (paths.length - i) + ".jar";
+        }
+        writeList("libbar-java.list", paths);
+        DpkgFileIndex index = DpkgFileIndex.load(infoDir);
+
+        assertEquals(7 + 1 + 2 + paths.length, index.size());
+        for (int i = 0; i < paths.length; i++) {
+            assertEquals(paths[i], "[libbar-java]", index.searchFile(new File(paths[i])).toString());
+        }
+        assertTrue(index.searchFile(new File("/usr/share/java/lib0.jar")).isEmpty());
+        assertTrue(index.searchFile(new File("/opt/lib1.jar")).isEmpty());
+        assertEquals("[libbar-java, libcommons-io-java]", index.searchFiles(new File("/usr"), ".jar").toString());
+    }
+
+    @Test
+    public void testLoadMissingDirectory() throws Exception {
+        assertNull(DpkgFileIndex.load(new File(infoDir, "missing")));
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2014 Debian Java Maintainers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.debian.maven.packager.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class GetPackageVersionsResultTest {
+
+    private GetPackageVersionsResult result = new GetPackageVersionsResult();
+
+    @Test
+    public void testFilterDpkgOutput() throws Exception {
+        //dpkg --status libjavacc-maven-plugin-java libfoo-java libmaven-war-plugin-java
+        List<String> dpkgOut = new ArrayList<String>();
+        dpkgOut.add("Package: libjavacc-maven-plugin-java");
+        dpkgOut.add("Status: install ok installed");
+        dpkgOut.add("Source: javacc-maven-plugin");
+        dpkgOut.add("Version: 2.6-1");
+        dpkgOut.add("Description: maven plugin which uses JavaCC to process JavaCC grammar files");
+        dpkgOut.add("");
+        dpkgOut.add("dpkg-query: package 'libfoo-java' is not installed and no information is available");
+        dpkgOut.add("Package: libmaven-war-plugin-java");
+        dpkgOut.add("Status: install ok installed");
+        dpkgOut.add("Version: 2.1~beta1-1build1");
+        dpkgOut.add("Description: Maven plugin to create a WAR file");
+        dpkgOut.add(" The maven-war-plugin (2.1-1) builds web applications");
+
+        for (String line : dpkgOut) {
+            result.newLine(line);
+        }
+        assertEquals("2.6", result.getVersion("libjavacc-maven-plugin-java"));
+        assertNull(result.getVersion("libfoo-java"));
+        assertEquals("2.1-beta1", result.getVersion("libmaven-war-plugin-java"));
+    }
+
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2014 Debian Java Maintainers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.debian.maven.packager.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class GetPackagesResultTest {
+
+    private GetPackagesResult result = new GetPackagesResult();
+
+    @Test
+    public void testFilterDpkgOutput() throws Exception {
+        //dpkg --search /usr/share/doc/libcommons-io-java/api/index.html /usr/share/doc/libfoo-java/api/index.html /usr/share/java /usr/lib/jni/libfoo.so
+        List<String> dpkgOut = new ArrayList<String>();
+        dpkgOut.add("libcommons-io-java-doc: /usr/share/doc/libcommons-io-java/api/index.html");
+        dpkgOut.add("dpkg-query: no path found matching pattern /usr/share/doc/libfoo-java/api/index.html");
+        dpkgOut.add("libcommons-io-java, libfoo-jni:amd64: /usr/share/java");
+        dpkgOut.add("libfoo-jni:amd64: /usr/lib/jni/libfoo.so");
+
+        for (String line : dpkgOut) {
+            result.newLine(line);
+        }
+        assertEquals("[libcommons-io-java-doc]", result.getPackages("/usr/share/doc/libcommons-io-java/api/index.html").toString());
+        assertTrue(result.getPackages("/usr/share/doc/libfoo-java/api/index.html").isEmpty());
+        assertEquals("[libcommons-io-java, libfoo-jni]", result.getPackages("/usr/share/java").toString());
+        assertEquals("[libfoo-jni]", result.getPackages("/usr/lib/jni/libfoo.so").toString());
+    }
+
+    @Test
+    public void testIgnoreDiversions() throws Exception {
+        List<String> dpkgOut = new ArrayList<String>();
+        dpkgOut.add("diversion by libfoo-java from: /usr/share/java/foo.jar");
+        dpkgOut.add("diversion by libfoo-java to: /usr/share/java/foo.jar.distrib");
+        dpkgOut.add("libfoo-java: /usr/share/java/foo.jar");
+
+        for (String line : dpkgOut) {
+            result.newLine(line);
+        }
+        assertEquals("[libfoo-java]", result.getPackages("/usr/share/java/foo.jar").toString());
+        assertTrue(result.getPackages("/usr/share/java/foo.jar.distrib").isEmpty());
+    }
+
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2014 Debian Java Maintainers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.debian.maven.packager.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class IOUtilTest {
+
+    private static class CollectOutput implements OutputHandler {
+        private final List<String> lines = new ArrayList<String>();
+        private boolean failed;
+
+        public void newLine(String line) {
+            lines.add(line);
+        }
+
+        public void failure() {
+            failed = true;
+        }
+    }
+
+    @After
+    public void tearDown() {
+        IOUtil.shutdown();
+    }
+
+    @Test
+    public void testExecuteProcess() throws Exception {
+        CollectOutput output = new CollectOutput();
+        assertEquals(0, IOUtil.executeProcess(new String[]{"/bin/sh", "-c", "echo foo; echo bar >&2"}, output, 0));
+        assertEquals("[foo, bar]", output.lines.toString());
+        assertFalse(output.failed);
+    }
+
+    @Test
+    public void testFailure() throws Exception {
+        CollectOutput output = new CollectOutput();
+        assertEquals(3, IOUtil.executeProcess(new String[]{"/bin/sh", "-c", "exit 3"}, output, 0));
+        assertTrue(output.failed);
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+        CollectOutput output = new CollectOutput();
+        long start = System.currentTimeMillis();
+        assertEquals(-1, IOUtil.executeProcess(new String[]{"sleep", "30"}, output, 1));
+        assertTrue(output.failed);
+        assertTrue(System.currentTimeMillis() - start < 10000);
+    }
+
+    @Test
+    public void testSubmitProcesses() throws Exception {
+        CollectOutput output1 = new CollectOutput();
+        CollectOutput output2 = new CollectOutput();
+        Future<Integer> process1 = IOUtil.submitProcess(new String[]{"echo", "foo"}, output1, 0);
+        Future<Integer> process2 = IOUtil.submitProcess(new String[]{"echo", "bar"}, output2, 0);
+        assertEquals(0, process1.get().intValue());
+        assertEquals(0, process2.get().intValue());
+        assertEquals("[foo]", output1.lines.toString());
+        assertEquals("[bar]", output2.lines.toString());
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2014 Debian Java Maintainers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.debian.maven.packager.util;
+
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LicenseRecognizerTest {
+
+    private LicenseRecognizer recognizer = LicenseRecognizer.getInstance();
+
+    private String recognizePom(String text) {
+        Set<String> licenses = new TreeSet<String>();
+        recognizer.recognize(text, true, licenses);
+        return licenses.toString();
+    }
+
+    private String recognizeHeader(String text) {
+        Set<String> licenses = new TreeSet<String>();
+        recognizer.recognize(text, false, licenses);
+        return licenses.toString();
+    }
+
+    @Test
+    public void testPomLicenses() throws Exception {
+        assertEquals("[Apache-2.0]", recognizePom("The Apache Software License, Version 2.0 http://www.apache.org/licenses/LICENSE-2.0.txt"));
+        assertEquals("[Apache-1.1]", recognizePom("Apache License 1.1"));
+        assertEquals("[LGPL-2.1]", recognizePom("GNU Lesser General Public License, Version 2.1"));
+        assertEquals("[LGPL-3]", recognizePom("LGPL-3.0 http://www.gnu.org/licenses/lgpl-3.0.txt"));
+        assertEquals("[LGPL-3]", recognizePom("LGPLv3"));
+        assertEquals("[GPL-2]", recognizePom("GNU General Public License (GPL) v2"));
+        assertEquals("[GPL-3]", recognizePom(" http://www.gnu.org/licenses/gpl-3.0.html"));
+        assertEquals("[AGPL-3]", recognizePom("GNU Affero General Public License version 3"));
+        assertEquals("[EPL-1.0]", recognizePom("Eclipse Public License - v 1.0"));
+        assertEquals("[MIT]", recognizePom("MIT License http://www.opensource.org/licenses/mit-license.php"));
+        assertEquals("[BSD]", recognizePom("New BSD License"));
+        assertEquals("[CC-BY-SA-3.0]", recognizePom(" http://creativecommons.org/licenses/by-sa/3.0"));
+        assertEquals("[CDDL, GPL-2]", recognizePom("CDDL + GPLv2 with classpath exception"));
+        assertEquals("[]", recognizePom("LGPL"));
+        assertEquals("[]", recognizePom("Proprietary license"));
+    }
+
+    @Test
+    public void testHeaders() throws Exception {
+        assertEquals("[LGPL-2.1]", recognizeHeader(
+                " * This library is free software; you can redistribute it and/or\n" +
+                " * modify it under the terms of the GNU Lesser General Public\n" +
+                " * License as published by the Free Software Foundation; either\n" +
+                " * version 2.1 of the License, or (at your option) any later version.\n"));
+        // the abbreviations are ignored in the source files
+        assertEquals("[]", recognizeHeader("import org.apache.commons.lang3.StringUtils;\nimport org.mit.v2.Foo;"));
+    }
+
+    @Test
+    public void testUnrecognized() throws Exception {
+        Set<String> licenses = new TreeSet<String>();
+        Set<String> unrecognized = new TreeSet<String>();
+        assertFalse(recognizer.recognize("LGPL", true, licenses, unrecognized));
+        assertFalse(recognizer.recognize("Common Public License Version 1.0", true, licenses, unrecognized));
+        assertFalse(recognizer.recognize("The zlib/libpng License", true, licenses, unrecognized));
+        assertTrue(recognizer.recognize("Apache License 2.0", true, licenses, unrecognized));
+        assertEquals("[Apache-2.0]", licenses.toString());
+        assertEquals("[CPL (version 1), LGPL (unknown version), ZLIB]", unrecognized.toString());
+    }
+
+    @Test
+    public void testSpdxId() throws Exception {
+        assertEquals("GPL-2.0", recognizer.getSpdxId("GPL-2"));
+        assertEquals("BSD-3-Clause", recognizer.getSpdxId("BSD"));
+        assertEquals("Apache-2.0", recognizer.getSpdxId("Apache-2.0"));
+        assertNull(recognizer.getSpdxId("Proprietary"));
+    }
+
+    @Test
+    public void testNormalize() throws Exception {
+        assertEquals("apache 2.0", new String(LicenseRecognizer.normalize("Apache (v2.0)")).trim());
+        assertEquals("gpl 2 or later", new String(LicenseRecognizer.normalize("GPLv2-or-later.")).trim());
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2014 Debian Java Maintainers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.debian.maven.packager.util;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.TreeSet;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LicenseScanCacheTest {
+
+    private File testDir = new File("target/tmp/license-scan-cache");
+    private File cacheFile = new File(testDir, LicenseScanCache.CACHE_FILE);
+
+    @After
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(testDir);
+    }
+
+    private LicenseCheckResult scan(LicenseScanCache cache) throws Exception {
+        SourceLicensesScanner scanner = new SourceLicensesScanner();
+        scanner.setCache(cache);
+        LicenseCheckResult result = scanner.scan(testDir);
+        cache.save();
+        return result;
+    }
+
+    @Test
+    public void testSaveAndReload() throws Exception {
+        SourceLicensesScanner.FileLicenses found = new SourceLicensesScanner.FileLicenses();
+        found.licenses.add("Apache-2.0");
+        found.unrecognized.add("ISC");
+        found.copyrights.add("2012 John Doe: all rights reserved");
+        found.copyrights.add("2014 Jane Doe");
+
+        LicenseScanCache cache = new LicenseScanCache(cacheFile);
+        cache.put("src/Foo.java", 120, 1000, "abcd", found);
+        cache.put("README", 20, 1000, "ef01", new SourceLicensesScanner.FileLicenses());
+        cache.save();
+
+        assertTrue("Cache not saved", cacheFile.exists());
+
+        cache = cache.reload();
+        SourceLicensesScanner.FileLicenses cached = cache.get("src/Foo.java", 120, 1000);
+        assertNotNull(cached);
+        assertEquals(found.licenses, cached.licenses);
+        assertEquals(found.unrecognized, cached.unrecognized);
+        assertEquals(found.copyrights, cached.copyrights);
+        assertTrue(cache.get("README", 20, 1000).licenses.isEmpty());
+        assertNull(cache.get("src/Foo.java", 121, 1000));
+        assertNull(cache.get("src/Foo.java", 120, 2000));
+        assertNotNull(cache.get("src/Foo.java", "abcd"));
+        assertNull(cache.get("src/Foo.java", "dcba"));
+        assertNull(cache.get("src/Bar.java", 120, 1000));
+    }
+
+    @Test
+    public void testModifiedFilesRescanned() throws Exception {
+        File foo = new File(testDir, "src/Foo.java");
+        FileUtils.writeStringToFile(foo, "/* Licensed under the Apache License, Version 2.0 */\n");
+        File bar = new File(testDir, "src/Bar.java");
+        FileUtils.writeStringToFile(bar, "/* GNU Lesser General Public License version 2.1 */\n");
+
+        LicenseCheckResult result = scan(new LicenseScanCache(cacheFile));
+        assertEquals(new TreeSet<String>(Arrays.asList("Apache-2.0", "LGPL-2.1")), result.getLicenses());
+
+        // the cache itself isn't scanned and the unchanged files aren't read again
+        result = scan(new LicenseScanCache(cacheFile));
+        assertEquals(new TreeSet<String>(Arrays.asList("Apache-2.0", "LGPL-2.1")), result.getLicenses());
+
+        FileUtils.writeStringToFile(foo, "/* Licensed under the MIT License */\n");
+        foo.setLastModified(foo.lastModified() + 2000);
+        long barSize = bar.length();
+        long barLastModified = bar.lastModified();
+        assertTrue(bar.delete());
+
+        result = scan(new LicenseScanCache(cacheFile));
+        assertEquals(new TreeSet<String>(Arrays.asList("MIT")), result.getLicenses());
+
+        LicenseScanCache cache = new LicenseScanCache(cacheFile);
+        assertNull("Deleted file still cached", cache.get("src/Bar.java", barSize, barLastModified));
+        assertNotNull(cache.get("src/Foo.java", foo.length(), foo.lastModified()));
+    }
+
+    @Test
+    public void testTouchedFileMatchedByHash() throws Exception {
+        File foo = new File(testDir, "src/Foo.java");
+        FileUtils.writeStringToFile(foo, "/* Licensed under the Apache License, Version 2.0 */\n");
+        scan(new LicenseScanCache(cacheFile));
+
+        foo.setLastModified(foo.lastModified() + 2000);
+        LicenseScanCache cache = new LicenseScanCache(cacheFile);
+        assertNull(cache.get("src/Foo.java", foo.length(), foo.lastModified()));
+        assertEquals("[Apache-2.0]", scan(cache).getLicenses().toString());
+
+        // the new modification time is recorded
+        cache = cache.reload();
+        assertNotNull(cache.get("src/Foo.java", foo.length(), foo.lastModified()));
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2014 Debian Java Maintainers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.debian.maven.packager.util;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import org.debian.maven.packager.DebianDependency;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PackageScannerCacheTest {
+
+    private File testDir = new File("target/tmp/package-scanner-cache");
+    private File cacheFile = new File(testDir, "cache/package-scanner.properties");
+    private File dpkgStatus = new File(testDir, "status");
+
+    @Before
+    public void setUp() throws Exception {
+        testDir.mkdirs();
+        FileUtils.writeStringToFile(dpkgStatus, "Package: ant\n");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(testDir);
+    }
+
+    @Test
+    public void testSaveAndReload() throws Exception {
+        PackageScannerCache cache = new PackageScannerCache(cacheFile, dpkgStatus);
+        cache.putPackage(new File("/usr/share/java/ant.jar"), "ant");
+        cache.putPackage(new File("/usr/share/java/azertyuiop-123.jar"), null);
+        cache.putVersion("ant", "1.9.4");
+        cache.putSharedJars("ant", Arrays.asList("ant", "ant-launcher"));
+        cache.save();
+
+        assertTrue("Cache not saved", cacheFile.exists());
+
+        cache = cache.reload();
+        assertEquals("ant", cache.getPackage(new File("/usr/share/java/ant.jar")));
+        assertEquals("", cache.getPackage(new File("/usr/share/java/azertyuiop-123.jar")));
+        assertNull(cache.getPackage(new File("/usr/share/java/junit4.jar")));
+        assertEquals("1.9.4", cache.getVersion("ant"));
+        assertNull(cache.getVersion("junit4"));
+        assertEquals(Arrays.asList("ant", "ant-launcher"), cache.getSharedJars("ant"));
+        assertNull(cache.getSharedJars("junit4"));
+    }
+
+    @Test
+    public void testInvalidatedByDpkgStatusChange() throws Exception {
+        PackageScannerCache cache = new PackageScannerCache(cacheFile, dpkgStatus);
+        cache.putPackage(new File("/usr/share/java/ant.jar"), "ant");
+        cache.save();
+
+        FileUtils.writeStringToFile(dpkgStatus, "Package: ant\n\nPackage: junit4\n");
+
+        cache = cache.reload();
+        assertNull(cache.getPackage(new File("/usr/share/java/ant.jar")));
+    }
+
+    @Test
+    public void testFailedDpkgNotCached() throws Exception {
+        PackageScannerCache cache = new PackageScannerCache(cacheFile, dpkgStatus);
+        PackageScanner scanner = new PackageScanner(false);
+        scanner.setCache(cache);
+        scanner.setDpkgCommand(new File(testDir, "dpkg").getAbsolutePath());
+
+        assertTrue(scanner.getInstalledPackageVersions(Collections.singletonList(new DebianDependency("ant"))).isEmpty());
+        assertNull("Package recorded as not installed", cache.getVersion("ant"));
+
+        File jar = new File("/usr/share/java/ant.jar");
+        assertNull(scanner.searchPkg(jar));
+        assertNull("File recorded as not installed", cache.getPackage(jar));
+
+        File dir = new File("/usr/share/maven-repo/org/apache/ant/ant");
+        assertNull(scanner.searchPkg(dir, ".pom"));
+        assertNull("Directory recorded as not installed", cache.getPackage(new File(dir, "<ANY>.pom")));
+
+        // The files are searched again once dpkg works
+        scanner.setDpkgCommand(createDpkg("echo 'ant: /usr/share/java/ant.jar'").getAbsolutePath());
+        assertEquals(new DebianDependency("ant"), scanner.searchPkg(jar));
+    }
+
+    @Test
+    public void testSearchDirectoriesAtOnce() throws Exception {
+        PackageScannerCache cache = new PackageScannerCache(cacheFile, dpkgStatus);
+        PackageScanner scanner = new PackageScanner(true);
+        scanner.setCache(cache);
+        File calls = new File(testDir, "calls");
+        scanner.setDpkgCommand(createDpkg(
+                "echo call >> " + calls.getAbsolutePath() + "\n"
+                + "echo 'ant: /usr/share/maven-repo/org/apache/ant/ant/1.9.4/ant-1.9.4.pom'\n"
+                + "echo 'ant: /usr/share/maven-repo/org/apache/ant/ant/1.9.4/ant-1.9.4.jar'\n"
+                + "echo 'dpkg-query: no path found matching pattern /usr/share/maven-repo/org/foo/foo/*/*'\n"
+                + "exit 1").getAbsolutePath());
+
+        File ant = new File("/usr/share/maven-repo/org/apache/ant/ant");
+        File foo = new File("/usr/share/maven-repo/org/foo/foo");
+        Map<File, String> packages = scanner.searchInstalledPkgs(Arrays.asList(ant, foo), ".pom");
+        assertEquals(Collections.singletonMap(ant, "ant"), packages);
+
+        // The directories are not searched again
+        assertEquals(new DebianDependency("ant"), scanner.searchPkg(ant, ".pom"));
+        assertNull(scanner.searchPkg(foo, ".pom"));
+        assertEquals(1, FileUtils.readLines(calls).size());
+        assertEquals("ant", cache.getPackage(new File(ant, "<ANY>.pom")));
+        assertEquals("", cache.getPackage(new File(foo, "<ANY>.pom")));
+    }
+
+    private File createDpkg(String script) throws Exception {
+        File dpkg = new File(testDir, "dpkg");
+        FileUtils.writeStringToFile(dpkg, "#!/bin/sh\n" + script + "\n");
+        dpkg.setExecutable(true);
+        return dpkg;
+    }
+}
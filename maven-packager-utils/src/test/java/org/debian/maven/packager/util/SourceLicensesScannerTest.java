@@ -0,0 +1,93 @@
+/*
+ * Copyright 2014 Debian Java Maintainers.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.debian.maven.packager.util;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.TreeSet;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SourceLicensesScannerTest {
+
+    private File testDir = new File("target/tmp/source-licenses-scanner");
+
+    @After
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(testDir);
+    }
+
+    @Test
+    public void testScan() throws Exception {
+        FileUtils.writeStringToFile(new File(testDir, "src/main/java/Foo.java"),
+                "/*\n" +
+                " * Copyright 2012 John Doe.\n" +
+                " *\n" +
+                " * Licensed under the Apache License, Version 2.0 (the \"License\");\n" +
+                " * you may not use this file except in compliance with the License.\n" +
+                " */\n" +
+                "public class Foo {}\n");
+        FileUtils.writeStringToFile(new File(testDir, "src/main/java/Bar.java"),
+                "// Copyright (C) 2004-2010 Jane Doe\n" +
+                "//\n" +
+                "// This library is free software; you can redistribute it and/or\n" +
+                "// modify it under the terms of the GNU Lesser General Public\n" +
+                "// License as published by the Free Software Foundation; either\n" +
+                "// version 2.1 of the License, or (at your option) any later version.\n" +
+                "public class Bar {}\n");
+        FileUtils.writeStringToFile(new File(testDir, "README"), "Nothing to see here\n");
+        FileUtils.writeByteArrayToFile(new File(testDir, "lib/foo.jar"), new byte[]{'P', 'K', 3, 4, 0, 0});
+        FileUtils.writeStringToFile(new File(testDir, ".git/COPYING"), "GNU General Public License version 3\n");
+
+        LicenseCheckResult result = new SourceLicensesScanner().scan(testDir);
+
+        assertEquals(new TreeSet<String>(Arrays.asList("Apache-2.0", "LGPL-2.1")), result.getLicenses());
+        assertEquals(new TreeSet<String>(Arrays.asList("2004-2010 Jane Doe", "2012 John Doe.")), result.getCopyrightOwners());
+    }
+
+    @Test
+    public void testScanHeader() throws Exception {
+        SourceLicensesScanner scanner = new SourceLicensesScanner();
+
+        assertEquals("[GPL-3]", scanner.scanHeader("# This program is free software: you can redistribute it and/or modify\n" +
+                "# it under the terms of the GNU General Public License as published by\n" +
+                "# the Free Software Foundation, either version 3 of the License, or\n" +
+                "# (at your option) any later version.").licenses.toString());
+        assertEquals("[BSD]", scanner.scanHeader(" * Redistribution and use in source and binary forms, with or without\n" +
+                " * modification, are permitted provided that the following conditions are met:\n" +
+                " * Neither the name of the copyright holder nor the names of its contributors").licenses.toString());
+        assertEquals("[MIT]", scanner.scanHeader("Permission is hereby granted, free of charge, to any person obtaining a copy\n" +
+                "of this software and associated documentation files").licenses.toString());
+        assertTrue(scanner.scanHeader("package foo;").licenses.isEmpty());
+    }
+
+    @Test
+    public void testScanUnrecognizedHeader() throws Exception {
+        SourceLicensesScanner scanner = new SourceLicensesScanner();
+
+        SourceLicensesScanner.FileLicenses found = scanner.scanHeader(
+                " * Permission to use, copy, modify, and/or distribute this software for any\n" +
+                " * purpose with or without fee is hereby granted, provided that the above");
+        assertTrue(found.licenses.isEmpty());
+        assertEquals("[ISC]", found.unrecognized.toString());
+        assertTrue(scanner.scanHeader("package foo;").unrecognized.isEmpty());
+    }
+}
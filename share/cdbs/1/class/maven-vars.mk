@@ -27,6 +27,11 @@ _cdbs_class_path ?= /usr/share/cdbs/1/class
 ifndef _cdbs_class_maven_vars
 _cdbs_class_maven_vars = 1
 
+# MAVEN_LAUNCHER_CLASSPATH and MAVEN_LAUNCHER_CLASS, shared with the CDS archive generation
+# (/usr/share/maven-debian-helper/maven-launcher.conf, or the one of the source tree when
+# maven-debian-helper builds itself)
+include $(_cdbs_class_path)/../../../maven-debian-helper/maven-launcher.conf
+
 # Declare Build-Deps for packages using this file
 CDBS_BUILD_DEPENDS := $(CDBS_BUILD_DEPENDS), cdbs (>= 0.4.43)
 CDBS_BUILD_DEPENDS := $(CDBS_BUILD_DEPENDS), maven-debian-helper (>= 1.4)
@@ -55,7 +60,7 @@ JAVACMD   = $(JAVA_HOME)/bin/java
 # end of the class path if it exists in the JDK's lib directory.
 # You can override the complete class path using DEB_CLASSPATH.
 DEB_JARS_BASE = /usr/share/java
-DEB_CLASSPATH = $(MAVEN_HOME)/boot/plexus-classworlds-2.x.jar:$(shell for jar in $(DEB_JARS); do \
+DEB_CLASSPATH = $(MAVEN_LAUNCHER_CLASSPATH):$(shell for jar in $(DEB_JARS); do \
 		if [ -f "$$jar" ]; then echo -n "$${jar}:"; fi; \
 		if [ -f "$$jar".jar ]; then echo -n "$${jar}.jar:"; fi; \
 		if [ -f $(DEB_JARS_BASE)/"$$jar" ]; then echo -n "$(DEB_JARS_BASE)/$${jar}:"; fi; \
@@ -75,6 +80,18 @@ DEB_RESOLVEDEP_ARGS =
 # If true, install the Maven jars to /usr/share/java automatically
 DEB_MAVEN_INSTALL_TO_USJ = true
 
+# If set, Maven reads the artifacts directly from /usr/share/maven-repo instead
+# of a copy of the repository made of symbolic links in debian/maven-repo, which
+# then only contains the fake POMs and the artifacts installed by the build.
+# mh_patchpoms reads debian/maven-repo-view, the system repository merged with
+# the fake POMs.
+DEB_MAVEN_REPO_OVERLAY =
+
+# If set, the Maven invocations of the build are executed by a Maven process
+# kept running in the background, which avoids starting and warming up a new
+# Maven for each step. The daemon is stopped after the installation.
+DEB_MAVEN_DAEMON =
+
 # The name of the binary package that gets the jar files installed. The
 # first package by default.
 DEB_JAR_PACKAGE = $(firstword $(shell dh_listpackages))
@@ -89,12 +106,20 @@ DEB_DOC_PACKAGE = $(firstword $(shell dh_listpackages | grep -v "^$(DEB_JAR_PACK
 # the property file.
 DEB_MAVEN_PROPERTYFILE = $(shell test -f $(CURDIR)/debian/maven.properties && echo $(CURDIR)/debian/maven.properties)
 
+# Class Data Sharing archive of the Maven classes for the JDK, generated by
+# /usr/share/maven-debian-helper/generate-cds-archive.sh. The archive is
+# used if it exists, otherwise the bytecode verification is disabled.
+DEB_MAVEN_CDS_ARCHIVE = /var/cache/maven-debian-helper/cds/$(notdir $(realpath $(JAVA_HOME))).jsa
+DEB_MAVEN_JVM_OPTS = $(if $(wildcard $(DEB_MAVEN_CDS_ARCHIVE)),-XX:SharedArchiveFile=$(DEB_MAVEN_CDS_ARCHIVE),-noverify)
+
 # You can specify additional JVM arguments in MAVEN_OPTS and Maven
 # command-line arguments in MAVEN_ARGS. You can additionally define
 # MAVEN_ARGS_<package> for each individual package.
-DEB_MAVEN_INVOKE = cd $(DEB_BUILDDIR) && $(JAVACMD) -noverify -cp $(DEB_CLASSPATH) \
-		 $(JAVA_OPTS) -Dclassworlds.conf=$(MAVEN_CLASSCONF) \
-		 org.codehaus.classworlds.Launcher \
+DEB_MAVEN_INVOKE = cd $(DEB_BUILDDIR) && $(JAVACMD) $(DEB_MAVEN_JVM_OPTS) -cp $(DEB_CLASSPATH) \
+		 $(JAVA_OPTS) $(if $(DEB_MAVEN_REPO_OVERLAY),-Ddebian.repo.overlay=true) \
+		 $(if $(DEB_MAVEN_DAEMON),-Ddebian.maven.daemon=$(CURDIR)/debian/.maven-daemon) \
+		 -Dclassworlds.conf=$(MAVEN_CLASSCONF) \
+		 $(MAVEN_LAUNCHER_CLASS) \
 		 -s$(MAVEN_SETTINGS) \
 		 -Dmaven.repo.local=$(DEB_MAVEN_REPO) \
 		 $(if $(DEB_MAVEN_ARGS_$(cdbs_curpkg)),$(DEB_MAVEN_ARGS_$(cdbs_curpkg)),$(DEB_MAVEN_ARGS))
@@ -103,6 +128,14 @@ DEB_MAVEN_INVOKE = cd $(DEB_BUILDDIR) && $(JAVACMD) -noverify -cp $(DEB_CLASSPAT
 # Building uses the default target from build.xml, installing and testing is
 # only called if the corresponding variable is set. You can also specify
 # multiple targets for each step.
+# Large multi-module projects can install all the modules at once with
+# org.debian.maven:debian-maven-plugin:$(MAVEN_DEBIAN_VERSION):install-all
+# Set DEB_MAVEN_INSTALL_PACKAGE to install the jars, resolve the dependencies
+# and install the javadoc in a single Maven session with the install-package
+# goal, instead of DEB_MAVEN_INSTALL_TARGET, mh_resolve_dependencies and
+# DEB_MAVEN_INSTALL_DOC_TARGET.
+DEB_MAVEN_INSTALL_PACKAGE =
+DEB_MAVEN_INSTALL_PACKAGE_TARGET = org.debian.maven:debian-maven-plugin:$(MAVEN_DEBIAN_VERSION):install-package
 DEB_MAVEN_BUILD_TARGET = package
 DEB_MAVEN_INSTALL_TARGET = org.debian.maven:debian-maven-plugin:$(MAVEN_DEBIAN_VERSION):install
 DEB_MAVEN_CHECK_TARGET =
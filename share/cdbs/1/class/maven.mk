@@ -32,6 +32,8 @@ include $(_cdbs_rules_path)/buildcore.mk$(_cdbs_makefile_suffix)
 include $(_cdbs_class_path)/maven-vars.mk$(_cdbs_makefile_suffix)
 
 DEB_MAVEN_REPO := $(CURDIR)/debian/maven-repo
+# With DEB_MAVEN_REPO_OVERLAY, the system repository merged with the fake POMs, read by mh_patchpoms
+DEB_MAVEN_REPO_VIEW := $(CURDIR)/debian/maven-repo-view
 
 JAVA_OPTS = \
   $(shell test -n "$(DEB_MAVEN_PROPERTYFILE)" && echo -Dproperties.file.manual=$(DEB_MAVEN_PROPERTYFILE))
@@ -59,7 +61,7 @@ debian/maven.rules:
 	mh_lspoms --non-interactive --offline -p$(DEB_JAR_PACKAGE) --force
 
 debian/stamp-poms-patched: debian/maven-repo
-	mh_patchpoms -p$(DEB_JAR_PACKAGE) --debian-build --keep-pom-version --maven-repo=$(DEB_MAVEN_REPO) $(DEB_PATCHPOMS_ARGS)
+	mh_patchpoms -p$(DEB_JAR_PACKAGE) --debian-build --keep-pom-version --maven-repo=$(if $(DEB_MAVEN_REPO_OVERLAY),$(DEB_MAVEN_REPO_VIEW),$(DEB_MAVEN_REPO)) $(DEB_PATCHPOMS_ARGS)
 	touch debian/stamp-poms-patched
 
 patch-poms: debian/$(DEB_JAR_PACKAGE).poms debian/maven.rules debian/stamp-poms-patched
@@ -69,7 +71,7 @@ unpatch-poms: debian/$(DEB_JAR_PACKAGE).poms
 	$(RM) -f debian/stamp-poms-patched
 
 debian/maven-repo:
-	/usr/share/maven-debian-helper/copy-repo.sh $(CURDIR)/debian
+	/usr/share/maven-debian-helper/copy-repo.sh $(CURDIR)/debian $(if $(DEB_MAVEN_REPO_OVERLAY),--overlay)
 
 post-patches:: patch-poms
 
@@ -92,7 +94,9 @@ after-mvn-build::
 cleanbuilddir:: DEB_PATCHPOMS_ARGS += --ignore-rules=debian/maven.ignoreRules --clean-ignore-rules=debian/maven.cleanIgnoreRules
 cleanbuilddir:: maven-sanity-check post-patches debian/maven-repo
 	-$(DEB_MAVEN_INVOKE) $(DEB_MAVEN_CLEAN_TARGET)
-	$(RM) -r $(DEB_MAVEN_REPO) debian/stamp-maven-build
+	$(if $(DEB_MAVEN_DAEMON),-$(DEB_MAVEN_INVOKE) --debian-daemon-stop)
+	$(RM) debian/.maven-daemon debian/.maven-daemon.log
+	$(RM) -r $(DEB_MAVEN_REPO) $(DEB_MAVEN_REPO_VIEW) debian/stamp-maven-build
 	$(if $(cdbs_new_poms_file), $(RM) debian/$(DEB_JAR_PACKAGE).poms)
 	$(if $(cdbs_new_maven_rules_file), $(RM) debian/maven.rules)
 	$(if $(cdbs_use_maven_substvars), $(RM) debian/*.substvars)
@@ -108,8 +112,14 @@ DEB_RESOLVEDEP_ARGS += --base-directory=$(CURDIR) --non-explore
 
 common-install-arch common-install-indep:: common-install-impl
 common-install-impl::
-	$(if $(DEB_MAVEN_INSTALL_TARGET),$(DEB_MAVEN_INVOKE) $(PLUGIN_ARGS) $(DEB_MAVEN_INSTALL_TARGET),@echo "DEB_MAVEN_INSTALL_TARGET unset, skipping default maven.mk common-install target")
-	$(if $(cdbs_use_maven_substvars), mh_resolve_dependencies --non-interactive --offline -p$(DEB_JAR_PACKAGE) $(DEB_RESOLVEDEP_ARGS) )
+	$(if $(DEB_MAVEN_INSTALL_PACKAGE),$(DEB_MAVEN_INVOKE) $(PLUGIN_ARGS) $(if $(DEB_DOC_PACKAGE),-Ddebian.doc.package=$(DEB_DOC_PACKAGE)) $(DEB_MAVEN_INSTALL_PACKAGE_TARGET))
+	$(if $(DEB_MAVEN_INSTALL_PACKAGE),,$(if $(DEB_MAVEN_INSTALL_TARGET),$(DEB_MAVEN_INVOKE) $(PLUGIN_ARGS) $(DEB_MAVEN_INSTALL_TARGET),@echo "DEB_MAVEN_INSTALL_TARGET unset, skipping default maven.mk common-install target"))
+	$(if $(DEB_MAVEN_INSTALL_PACKAGE),,$(if $(cdbs_use_maven_substvars), mh_resolve_dependencies --non-interactive --offline -p$(DEB_JAR_PACKAGE) $(DEB_RESOLVEDEP_ARGS) ))
+
+ifneq (,$(DEB_MAVEN_DAEMON))
+common-binary-post-install-arch common-binary-post-install-indep::
+	-$(DEB_MAVEN_INVOKE) --debian-daemon-stop
+endif
 
 ifeq (,$(findstring nocheck,$(DEB_BUILD_OPTIONS)))
 common-build-arch common-build-indep:: debian/stamp-maven-check
@@ -134,7 +144,7 @@ debian/stamp-maven-doc: debian/stamp-maven-build
 	$(if $(DEB_MAVEN_DOC_TARGET),touch $@)
 
 common-install-impl:: 
-	$(if $(DEB_MAVEN_INSTALL_DOC_TARGET),$(DEB_MAVEN_INVOKE) $(PLUGIN_DOC_ARGS) $(DEB_MAVEN_INSTALL_DOC_TARGET),@echo "DEB_MAVEN_INSTALL_DOC_TARGET unset, skipping documentation maven.mk common-install target")
+	$(if $(DEB_MAVEN_INSTALL_PACKAGE),,$(if $(DEB_MAVEN_INSTALL_DOC_TARGET),$(DEB_MAVEN_INVOKE) $(PLUGIN_DOC_ARGS) $(DEB_MAVEN_INSTALL_DOC_TARGET),@echo "DEB_MAVEN_INSTALL_DOC_TARGET unset, skipping documentation maven.mk common-install target"))
 	$(if $(cdbs_use_maven_substvars), cp debian/$(DEB_JAR_PACKAGE).substvars debian/$(DEB_DOC_PACKAGE).substvars)
 	# cleanup generated docs
 	$(RM) -f target/apidocs/*.sh target/apidocs/options 
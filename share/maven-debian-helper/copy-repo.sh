@@ -16,92 +16,20 @@
 
 set -e
 
-SRC_REPO="/usr/share/maven-repo"
-DEST_REPO="$1/maven-repo"
-
-find_src_poms() {
-  find -L $SRC_REPO -name '*.pom' -printf '%P\n'
-}
-
-list_fakes()
-{
-  CONFFILES="/etc/maven/fake-poms.conf"
-  if [ -r debian/fake-poms.conf ]
-  then
-    CONFFILES="$CONFFILES debian/fake-poms.conf"
-  fi
-  sed -e's,#.*,,' $CONFFILES
-}
-
-find_all_meta() {
-  find $DEST_REPO -name 'maven-metadata-tmp.xml'
-}
-
-header() {
-  echo '<?xml version="1.0" encoding="UTF-8"?>'
-  echo '<metadata>'
-  echo '  <versioning>'
-  echo '    <versions>'
-}
-
-footer() {
-  echo '    </versions>'
-  echo '  </versioning>'
-  echo '</metadata>'
-}
-
-echo_meta() {
-  header
-  cat $META
-  footer
-}
+# The repository is built by org.debian.maven.CopyRepo: the version directories of
+# /usr/share/maven-repo are linked into $1/maven-repo, the fake POMs listed in
+# /etc/maven/fake-poms.conf and debian/fake-poms.conf are generated and the
+# maven-metadata-local.xml files are written. With the --overlay option only the
+# fake POMs are generated, the system repository is read directly by Maven and
+# $1/maven-repo-view merges it with the fake POMs for mh_patchpoms.
+#
+# If DEB_MAVEN_REPO_CACHE is set in the environment, the repository is built once
+# in this directory for each state of the system and copied with hard links.
+# Only the most recently used snapshots are kept.
 
 if [ -z "$1" ]; then
   echo "ABORT: missing destination dir"
   exit 1
 fi
 
-find_src_poms | while read POM; do
-  VER_DIR=$(dirname $POM)
-  BASEDIR=$(dirname $VER_DIR)
-  mkdir -p $DEST_REPO/$BASEDIR
-  ln -s $SRC_REPO/$VER_DIR $DEST_REPO/$BASEDIR/
-done
-
-list_fakes | while read GROUPID ARTIFACTID JARFILE VERSION
-do
-  GROUPDIR=$(echo $GROUPID | tr . /)
-  BASEDIR="$DEST_REPO/$GROUPDIR/$ARTIFACTID"
-  JARFILE=${JARFILE:-"/usr/share/java/$ARTIFACTID.jar"}
-  VERSION=${VERSION:-"debian"}
-  if [ -d $BASEDIR/$VERSION ]
-  then
-    echo "skip faking of existing $GROUPID:$ARTIFACTID::$VERSION"
-    continue
-  else
-    mkdir -p $BASEDIR/$VERSION/
-  fi
-  if [ -r $JARFILE ]
-  then
-    PACKAGING="jar"
-    ln -s $JARFILE $BASEDIR/$VERSION/$ARTIFACTID-$VERSION.jar
-  else
-    PACKAGING="pom"
-  fi
-  cat > $BASEDIR/$VERSION/$ARTIFACTID-$VERSION.pom <<.EOF
-<project>
-  <modelVersion>4.0.0</modelVersion>
-  <groupId>$GROUPID</groupId>
-  <artifactId>$ARTIFACTID</artifactId>
-  <version>$VERSION</version>
-  <packaging>$PACKAGING</packaging>
-</project>
-.EOF
-done
-
-find_all_meta | while read META; do
-  DIR=$(dirname $META)
-  echo_meta > $DIR/maven-metadata-local.xml
-  rm -f $META
-done
-
+exec ${JAVACMD:-java} -cp /usr/share/java/maven-debian-helper.jar org.debian.maven.CopyRepo "$@"
@@ -0,0 +1,88 @@
+#!/bin/sh
+
+# Copyright 2014 Debian Java Maintainers.
+#
+# Licensed under the Apache License, Version 2.0 (the "License");
+# you may not use this file except in compliance with the License.
+# You may obtain a copy of the License at
+#
+#      http://www.apache.org/licenses/LICENSE-2.0
+#
+# Unless required by applicable law or agreed to in writing, software
+# distributed under the License is distributed on an "AS IS" BASIS,
+# WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+# See the License for the specific language governing permissions and
+# limitations under the License.
+
+# Generates a Class Data Sharing archive with the classes loaded by the
+# Maven invocations of the package builds: the classpath defined in
+# /etc/maven/m2-debian.conf and the debian-maven-plugin realm. The goals of
+# the plugin are run on a throwaway project and only write in its directory.
+# The JVM is launched with the classpath of maven-launcher.conf like the
+# builds, otherwise the archive would be rejected at their startup. The archive
+# is used by the cdbs and debhelper build systems and by mvn-debian when it
+# exists, it saves the loading and the verification of these classes at the
+# startup of each Maven invocation.
+#
+# The archive is specific to a JDK and is named after its directory. The
+# generation requires a JDK supporting the dynamic archives (Java 13 or later).
+#
+# Usage: generate-cds-archive.sh [<archive file>]
+# The default archive is /var/cache/maven-debian-helper/cds/<jdk>.jsa for
+# the JDK in JAVA_HOME (/usr/lib/jvm/default-java by default)
+
+set -e
+
+. /usr/share/maven-debian-helper/maven-launcher.conf
+
+JAVA_HOME=${JAVA_HOME:-/usr/lib/jvm/default-java}
+JDK_NAME=$(basename $(readlink -f $JAVA_HOME))
+ARCHIVE=${1:-/var/cache/maven-debian-helper/cds/$JDK_NAME.jsa}
+MH_VERSION=$(ls /usr/share/maven-repo/org/debian/maven/maven-packager-utils/ | sed 's|/||')
+PLUGIN=org.debian.maven:debian-maven-plugin:$MH_VERSION
+
+if ! $JAVA_HOME/bin/java -XX:ArchiveClassesAtExit=/dev/null -version > /dev/null 2>&1; then
+    echo "The JDK in $JAVA_HOME doesn't support the dynamic CDS archives" >&2
+    exit 1
+fi
+
+TMP_DIR=$(mktemp -d ${TMP:-/tmp}/mh-cds.XXXXXXXXXX)
+trap "rm -rf $TMP_DIR" EXIT
+
+/usr/share/maven-debian-helper/copy-repo.sh $TMP_DIR/debian --overlay
+cat > $TMP_DIR/pom.xml <<EOF
+<project>
+  <modelVersion>4.0.0</modelVersion>
+  <groupId>org.debian.maven</groupId>
+  <artifactId>cds-archive</artifactId>
+  <version>1.0</version>
+  <packaging>pom</packaging>
+</project>
+EOF
+echo "pom.xml" > $TMP_DIR/debian/cds-archive.poms
+
+# Run the goals of debian-maven-plugin on the throwaway project, the install goal
+# writes in $TMP_DIR/debian/cds-archive. The classes loaded until the exit of the
+# JVM are written in the archive, it's discarded if Maven fails.
+mkdir -p $(dirname $ARCHIVE)
+if ! (cd $TMP_DIR && $JAVA_HOME/bin/java -XX:ArchiveClassesAtExit=$ARCHIVE.tmp \
+    -cp $MAVEN_LAUNCHER_CLASSPATH \
+    -Dclassworlds.conf=/etc/maven/m2-debian.conf -Ddebian.repo.overlay=true \
+    $MAVEN_LAUNCHER_CLASS -s/etc/maven/settings-debian.xml -o \
+    -Dmaven.repo.local=$TMP_DIR/debian/maven-repo -Ddebian.dir=$TMP_DIR/debian \
+    -Ddebian.package=cds-archive -Dinstall.to.usj=false \
+    $PLUGIN:resolve-none $PLUGIN:install) > $TMP_DIR/build.log 2>&1; then
+    rm -f $ARCHIVE.tmp
+    cat $TMP_DIR/build.log >&2
+    echo "The CDS archive $ARCHIVE could not be generated, Maven failed" >&2
+    exit 1
+fi
+
+if [ ! -s $ARCHIVE.tmp ]; then
+    rm -f $ARCHIVE.tmp
+    cat $TMP_DIR/build.log >&2
+    echo "The CDS archive $ARCHIVE could not be generated" >&2
+    exit 1
+fi
+mv $ARCHIVE.tmp $ARCHIVE
+echo "Generated the CDS archive $ARCHIVE"
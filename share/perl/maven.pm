@@ -8,6 +8,8 @@ package Debian::Debhelper::Buildsystem::maven;
 use strict;
 use base 'Debian::Debhelper::Buildsystem';
 use Debian::Debhelper::Dh_Lib qw(%dh doit);
+use Cwd qw(abs_path);
+use File::Basename;
 
 sub DESCRIPTION {
 	"Maven (pom.xml)"
@@ -28,26 +30,57 @@ sub new {
 	$this->{doc_package} = (grep /-doc$/, @packages)[0];
 	my $classconf = '/etc/maven/m2-debian.conf';
 
-	my @classpath = ('/usr/share/maven/boot/classworlds-2.x.jar');
+	# The launcher shared with the CDS archive generation
+	my %launcher = read_launcher_conf('/usr/share/maven-debian-helper/maven-launcher.conf');
+	my @classpath = ($launcher{MAVEN_LAUNCHER_CLASSPATH});
 	if (-e "$java_home/lib/tools.jar") {
 		push(@classpath, "$java_home/lib/tools.jar");
 	}
 
-	my @jvmopts = ('-noverify', '-cp', join(':',@classpath),
-		"-Dclassworlds.conf=$classconf");
+	# Use the CDS archive generated for the JDK by generate-cds-archive.sh
+	my @jvmopts = ('-noverify');
+	my $cds_archive = '/var/cache/maven-debian-helper/cds/' . basename(abs_path($java_home) || $java_home) . '.jsa';
+	if (-e $cds_archive) {
+		@jvmopts = ("-XX:SharedArchiveFile=$cds_archive");
+	}
+	push(@jvmopts, '-cp', join(':',@classpath), "-Dclassworlds.conf=$classconf");
 	if (-e "$this->{cwd}/debian/maven.properties") {
 		push (@jvmopts, "-Dproperties.file.manual=$this->{cwd}/debian/maven.properties");
 	}
+	# Read the artifacts directly from /usr/share/maven-repo, debian/maven-repo
+	# only contains the fake POMs and the artifacts installed by the build
+	if ($ENV{DEB_MAVEN_REPO_OVERLAY}) {
+		$this->{overlay} = 1;
+		push (@jvmopts, "-Ddebian.repo.overlay=true");
+	}
+	# Run the Maven invocations in a Maven process kept in the background
+	if ($ENV{DEB_MAVEN_DAEMON}) {
+		$this->{daemon} = 1;
+		push (@jvmopts, "-Ddebian.maven.daemon=$this->{cwd}/debian/.maven-daemon");
+	}
 
 	@{$this->{maven_cmd}} = ($java_home . '/bin/java',
 		@jvmopts,
-		"org.codehaus.classworlds.Launcher",
+		$launcher{MAVEN_LAUNCHER_CLASS},
 		"-s/etc/maven/settings-debian.xml",
 		"-Ddebian.dir=$this->{cwd}/debian",
 		"-Dmaven.repo.local=$this->{cwd}/debian/maven-repo");
 	return $this;
 }
 
+sub read_launcher_conf {
+	my $file=shift;
+	my %conf;
+	open(my $fh, '<', $file) || die "cannot read $file: $!";
+	while (<$fh>) {
+		chomp;
+		next if /^\s*(#|$)/;
+		$conf{$1} = $2 if /^(\w+)=(.*)$/;
+	}
+	close($fh);
+	return %conf;
+}
+
 sub configure {
 	my $this=shift;
 	my @patch_args;
@@ -55,10 +88,16 @@ sub configure {
 		push(@patch_args, "--build-no-docs");
 	}
 
-	doit("/usr/share/maven-debian-helper/copy-repo.sh", "$this->{cwd}/debian");
+	if ($this->{overlay}) {
+		# mh_patchpoms reads the system repository merged with the fake POMs
+		doit("/usr/share/maven-debian-helper/copy-repo.sh", "$this->{cwd}/debian", "--overlay");
+		push(@patch_args, "--maven-repo=$this->{cwd}/debian/maven-repo-view");
+	} else {
+		doit("/usr/share/maven-debian-helper/copy-repo.sh", "$this->{cwd}/debian");
+		push(@patch_args, "--maven-repo=$this->{cwd}/debian/maven-repo");
+	}
 	$this->doit_in_sourcedir("mh_patchpoms", "-p$this->{package}",
-		"--debian-build", "--keep-pom-version",
-		"--maven-repo=$this->{cwd}/debian/maven-repo", @patch_args);
+		"--debian-build", "--keep-pom-version", @patch_args);
 	doit("touch", "debian/stamp-poms-patched");
 }
 
@@ -77,7 +116,7 @@ sub build {
 
 sub install {
 	my $this=shift;
-	my @resolvedep_args;
+	my @doc_args;
 
 	opendir(my $dirhandle, "/usr/share/maven-repo/org/debian/maven/maven-packager-utils/")
 		|| die "maven debian helper not found";
@@ -85,28 +124,26 @@ sub install {
 	closedir $dirhandle;
 
 	if ($this->{doc_package}) {
-		push(@resolvedep_args, "--javadoc");
+		push(@doc_args, "-Ddebian.doc.package=$this->{doc_package}");
 	}
-	push(@resolvedep_args, "--base-directory=$this->{cwd}", "--non-explore");
 
+	# Install the jars, resolve the dependencies and install the javadoc in one Maven session
 	$this->doit_in_builddir(@{$this->{maven_cmd}},
 		"-Ddebian.dir=$this->{cwd}/debian",
 		"-Ddebian.package=$this->{package}",
 		"-Dmaven.repo.local=$this->{cwd}/debian/maven-repo",
-		"-Dinstall.to.usj=true",
-		"org.debian.maven:debian-maven-plugin:$maven_debian_version:install");
-	$this->doit_in_builddir("mh_resolve_dependencies", "--non-interactive",
-		"--offline", "-p$this->{package}", @resolvedep_args);
+		"-Dinstall.to.usj=true", @doc_args,
+		"org.debian.maven:debian-maven-plugin:$maven_debian_version:install-package");
 	if ($this->{doc_package}) {
-		$this->doit_in_builddir(@{$this->{maven_cmd}},
-			"-Ddebian.package=$this->{doc_package}",
-			"org.debian.maven:debian-maven-plugin:$maven_debian_version:install-doc");
 		doit("cp","debian/$this->{package}.substvars",
 			"debian/$this->{doc_package}.substvars");
 		# clean up generated docs
 		$this->doit_in_builddir("rm", "-f", "target/apidocs/*.sh",
 			"target/apidocs/options");
 	}
+	if ($this->{daemon}) {
+		$this->doit_in_builddir(@{$this->{maven_cmd}}, "--debian-daemon-stop");
+	}
 }
 
 sub clean {
@@ -117,8 +154,13 @@ sub clean {
 	if (-e "$this->{cwd}/debian/maven-repo")
 	{
 		$this->doit_in_builddir(@{$this->{maven_cmd}}, "clean");
+		if ($this->{daemon}) {
+			$this->doit_in_builddir(@{$this->{maven_cmd}}, "--debian-daemon-stop");
+		}
 		doit("rm", "-r", "$this->{cwd}/debian/maven-repo");
 	}
+	doit("rm", "-rf", "$this->{cwd}/debian/maven-repo-view");
+	doit("rm", "-f", "debian/.maven-daemon", "debian/.maven-daemon.log");
 	$this->doit_in_sourcedir("mh_unpatchpoms", "-p$this->{package}");
 	doit("rm", "-f", "debian/stamp-poms-patched");
 	doit("mh_clean");